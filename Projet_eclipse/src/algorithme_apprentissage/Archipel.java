@@ -0,0 +1,327 @@
+package algorithme_apprentissage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Algorithme génétique en modèle d'îles : la population est répartie en
+ * plusieurs sous-populations (les îles), chacune faisant évoluer sa propre
+ * NotreAlgorithmeGenetique dans un processus Java séparé (voir Ile). Chaque
+ * processus a ainsi son propre tas et son propre ramasse-miettes, et on peut
+ * augmenter la taille totale de la population et le nombre de coeurs
+ * utilisés sans passer par un seul tas géant.
+ *
+ * Toutes les INTERVALLE_MIGRATION générations, chaque île envoie ses meilleurs
+ * individus au coordinateur par une socket locale ; le coordinateur les fait
+ * migrer vers l'île suivante (en anneau), où ils remplacent les moins bons.
+ * La migration est synchrone : une île attend ses migrants avant de produire
+ * sa génération suivante. Après la dernière génération, chaque île envoie
+ * son meilleur individu au coordinateur.
+ *
+ * Usage : java algorithme_apprentissage.Archipel [îles] [taille par île]
+ * [générations] [graine]
+ */
+public class Archipel {
+
+	// Nombre d'îles par défaut
+	public static final int NOMBRE_ILES = 4;
+	// Nombre de générations entre deux migrations
+	public static final int INTERVALLE_MIGRATION = 5;
+	// Nombre d'individus envoyés par chaque île lors d'une migration
+	public static final int NOMBRE_MIGRANTS = 2;
+	// Temps maximal d'attente de la connexion d'une île, en millisecondes
+	private static final int ATTENTE_CONNEXION = 60000;
+
+	/**
+	 * Individu voyageant d'une île à l'autre : ses gènes et la performance
+	 * mesurée sur son île d'origine
+	 */
+	public static final class Migrant {
+		final double[] genes;
+		final float performance;
+
+		Migrant(double[] genes, float performance) {
+			this.genes = genes;
+			this.performance = performance;
+		}
+
+		/**
+		 * @return les gènes du migrant
+		 */
+		public double[] getGenes() {
+			return genes.clone();
+		}
+
+		/**
+		 * @return la performance du migrant sur son île d'origine
+		 */
+		public float getPerformance() {
+			return performance;
+		}
+	}
+
+	// Processus des îles
+	private final List<Process> processus = new ArrayList<Process>();
+	// Connexions aux îles, dans l'ordre des îles
+	private Socket[] connexions;
+	private DataInputStream[] entrees;
+	private DataOutputStream[] sorties;
+
+	/**
+	 * Lance les îles, attend leur connexion puis orchestre les migrations
+	 * jusqu'à la fin de l'apprentissage
+	 *
+	 * @param nombreIles
+	 * @param taille
+	 *            taille de la population de chaque île
+	 * @param generations
+	 * @param graine
+	 * @return le meilleur individu de la dernière génération, toutes îles
+	 *         confondues
+	 * @throws IOException
+	 */
+	public Migrant executer(int nombreIles, int taille, int generations,
+			long graine) throws IOException {
+		if (nombreIles < 1)
+			throw new IllegalArgumentException("Nombre d'îles invalide : "
+					+ nombreIles);
+		if (taille < 2)
+			throw new IllegalArgumentException("Taille de population invalide : "
+					+ taille);
+		if (generations < 1)
+			throw new IllegalArgumentException("Nombre de générations invalide : "
+					+ generations);
+		ServerSocket serveur = new ServerSocket(0, nombreIles,
+				InetAddress.getLoopbackAddress());
+		try {
+			lancerIles(serveur.getLocalPort(), nombreIles, taille,
+					generations, graine);
+			connecterIles(serveur, nombreIles);
+
+			int migrations = nombreMigrations(generations);
+			for (int m = 0; m < migrations; m++) {
+				List<List<Migrant>> emigrants = new ArrayList<List<Migrant>>(
+						nombreIles);
+				String output = "";
+				for (int i = 0; i < nombreIles; i++) {
+					int generation = entrees[i].readInt();
+					List<Migrant> migrants = lire(entrees[i]);
+					emigrants.add(migrants);
+					if (i == 0)
+						output = "Generation: " + generation;
+					output += "\t Ile " + i + ": "
+							+ migrants.get(0).performance;
+				}
+				System.out.println(output);
+				// Migration en anneau : l'île i reçoit les migrants de l'île
+				// i - 1
+				for (int i = 0; i < nombreIles; i++) {
+					ecrire(sorties[i], emigrants.get((i + nombreIles - 1)
+							% nombreIles));
+					sorties[i].flush();
+				}
+			}
+
+			// Chaque île envoie enfin son meilleur individu de la dernière
+			// génération
+			Migrant meilleur = null;
+			for (int i = 0; i < nombreIles; i++) {
+				entrees[i].readInt();
+				Migrant candidat = lire(entrees[i]).get(0);
+				if (meilleur == null
+						|| candidat.performance > meilleur.performance)
+					meilleur = candidat;
+			}
+			attendreIles();
+			return meilleur;
+		} finally {
+			fermer();
+			serveur.close();
+			for (Process p : processus)
+				p.destroy();
+		}
+	}
+
+	/**
+	 * @param generations
+	 * @return le nombre de migrations au cours de l'apprentissage : une après
+	 *         chaque INTERVALLE_MIGRATION générations, sauf après la dernière,
+	 *         et aucune s'il n'y a pas de migrant à envoyer
+	 */
+	static int nombreMigrations(int generations) {
+		if (NOMBRE_MIGRANTS < 1 || generations < 1)
+			return 0;
+		return (generations - 1) / INTERVALLE_MIGRATION;
+	}
+
+	/**
+	 * @param generation
+	 *            génération qui vient d'être évaluée, à partir de 0
+	 * @param generations
+	 * @return vrai si les îles échangent des migrants après cette génération
+	 */
+	static boolean migration(int generation, int generations) {
+		return NOMBRE_MIGRANTS > 0 && generation < generations - 1
+				&& (generation + 1) % INTERVALLE_MIGRATION == 0;
+	}
+
+	/**
+	 * Lance un processus Java par île, avec le même classpath que le
+	 * coordinateur
+	 */
+	private void lancerIles(int port, int nombreIles, int taille,
+			int generations, long graine) throws IOException {
+		String java = System.getProperty("java.home") + File.separator
+				+ "bin" + File.separator + "java";
+		String classpath = System.getProperty("java.class.path");
+		int threads = Math.max(1,
+				EvaluateurParallele.NOMBRE_THREADS_PAR_DEFAUT / nombreIles);
+		Random graines = new Random(graine);
+		for (int i = 0; i < nombreIles; i++) {
+			ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+					classpath, Ile.class.getName(), String.valueOf(port),
+					String.valueOf(i), String.valueOf(taille),
+					String.valueOf(generations),
+					String.valueOf(graines.nextLong()),
+					String.valueOf(threads));
+			builder.inheritIO();
+			processus.add(builder.start());
+		}
+	}
+
+	/**
+	 * Accepte la connexion de chaque île ; une île commence par envoyer son
+	 * numéro, les connexions pouvant arriver dans n'importe quel ordre
+	 */
+	private void connecterIles(ServerSocket serveur, int nombreIles)
+			throws IOException {
+		connexions = new Socket[nombreIles];
+		entrees = new DataInputStream[nombreIles];
+		sorties = new DataOutputStream[nombreIles];
+		serveur.setSoTimeout(ATTENTE_CONNEXION);
+		for (int n = 0; n < nombreIles; n++) {
+			Socket socket = serveur.accept();
+			DataInputStream entree = new DataInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			int i = entree.readInt();
+			if (i < 0 || i >= nombreIles || connexions[i] != null)
+				throw new IOException("Numéro d'île invalide : " + i);
+			connexions[i] = socket;
+			entrees[i] = entree;
+			sorties[i] = new DataOutputStream(new BufferedOutputStream(
+					socket.getOutputStream()));
+		}
+	}
+
+	/**
+	 * Attend la fin des processus des îles
+	 */
+	private void attendreIles() throws IOException {
+		try {
+			for (Process p : processus)
+				if (p.waitFor() != 0)
+					throw new IOException("Une île s'est terminée en erreur : "
+							+ p.exitValue());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Attente des îles interrompue", e);
+		}
+	}
+
+	/**
+	 * Ferme les connexions aux îles
+	 */
+	private void fermer() {
+		if (connexions == null)
+			return;
+		for (Socket socket : connexions) {
+			try {
+				if (socket != null)
+					socket.close();
+			} catch (IOException ioe) {
+				// rien à faire : on s'arrête
+			}
+		}
+	}
+
+	/**
+	 * Ecrit une liste de migrants : leur nombre puis, pour chacun, sa
+	 * performance et ses gènes
+	 *
+	 * @param sortie
+	 * @param migrants
+	 * @throws IOException
+	 */
+	static void ecrire(DataOutputStream sortie, List<Migrant> migrants)
+			throws IOException {
+		sortie.writeInt(migrants.size());
+		for (Migrant migrant : migrants) {
+			sortie.writeFloat(migrant.performance);
+			sortie.writeInt(migrant.genes.length);
+			for (double gene : migrant.genes)
+				sortie.writeDouble(gene);
+		}
+	}
+
+	/**
+	 * Lit une liste de migrants écrite par ecrire(-)
+	 *
+	 * @param entree
+	 * @return les migrants
+	 * @throws IOException
+	 */
+	static List<Migrant> lire(DataInputStream entree) throws IOException {
+		int nombre = entree.readInt();
+		List<Migrant> migrants = new ArrayList<Migrant>(nombre);
+		for (int m = 0; m < nombre; m++) {
+			float performance = entree.readFloat();
+			double[] genes = new double[entree.readInt()];
+			for (int j = 0; j < genes.length; j++)
+				genes[j] = entree.readDouble();
+			migrants.add(new Migrant(genes, performance));
+		}
+		return migrants;
+	}
+
+	/**
+	 * Lance l'apprentissage en modèle d'îles
+	 *
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		int nombreIles = args.length > 0 ? Integer.parseInt(args[0])
+				: NOMBRE_ILES;
+		int taille = args.length > 1 ? Integer.parseInt(args[1])
+				: NotreAlgorithmeGenetique.TAILLE_POPULATION;
+		int generations = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		long graine = args.length > 3 ? Long.parseLong(args[3]) : System
+				.nanoTime();
+
+		try {
+			Migrant meilleur = new Archipel().executer(nombreIles, taille,
+					generations, graine);
+			String output = "Meilleur individu : " + meilleur.performance
+					+ "\t";
+			for (double gene : meilleur.genes)
+				output += gene + "\t";
+			System.out.println(output);
+		} catch (IllegalArgumentException iae) {
+			System.out.println("Erreur : " + iae.getMessage());
+			System.out.println("Usage : java algorithme_apprentissage.Archipel"
+					+ " [îles] [taille par île] [générations] [graine]");
+		} catch (IOException ioe) {
+			System.out.print("Erreur : ");
+			ioe.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package algorithme_apprentissage;
+
+import game.ExperimentResult;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Garde les résultats des parties jouées par les chromosomes de la dernière
+ * génération évaluée, indexés par le contenu de leurs gènes. Un chromosome
+ * repris tel quel dans la génération suivante (élite, ou descendant ayant
+ * échappé au croisement et à la mutation) retrouve ainsi ses parties au lieu
+ * de tout rejouer.
+ *
+ * Selon la politique choisie, le résultat retrouvé est repris tel quel, ou
+ * bien sert de point de départ à la course (voir EvaluateurCourse), qui peut
+ * lui ajouter des parties tant que sa place reste incertaine. Dans ce second
+ * cas, les parties ne sont reprises que si la course a la même graine que
+ * celle qui les a fait jouer : la k-ième partie d'un chromosome repris est
+ * alors la même que celle de ses concurrents.
+ */
+public class CachePerformances {
+
+	/**
+	 * Ce qu'on fait du résultat retrouvé pour un chromosome déjà évalué
+	 */
+	public enum Politique {
+		// le résultat est repris tel quel, sans jouer de nouvelle partie
+		REUTILISER,
+		// les parties déjà jouées comptent dans la course, qui peut en
+		// ajouter jusqu'au nombre maximal de parties
+		ACCUMULER;
+	}
+
+	/**
+	 * Clé identifiant un chromosome par le contenu de ses gènes. Les gènes
+	 * sont recopiés : la clé ne change pas si le chromosome mute ensuite.
+	 */
+	public static final class Cle implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final double[] genes;
+		private final int hash;
+
+		public Cle(double[] genes) {
+			this.genes = genes.clone();
+			this.hash = Arrays.hashCode(this.genes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object autre) {
+			return autre instanceof Cle
+					&& Arrays.equals(genes, ((Cle) autre).genes);
+		}
+	}
+
+	// Politique appliquée aux chromosomes déjà évalués
+	private final Politique politique;
+	// Résultats de la dernière génération évaluée
+	private Map<Cle, ExperimentResult> resultats = new HashMap<Cle, ExperimentResult>();
+	// Graine de la course qui a produit ces résultats
+	private long graine;
+
+	/**
+	 * Constructeur du cache
+	 *
+	 * @param politique
+	 */
+	public CachePerformances(Politique politique) {
+		this.politique = politique;
+	}
+
+	/**
+	 * @return la politique appliquée aux chromosomes déjà évalués
+	 */
+	public Politique getPolitique() {
+		return politique;
+	}
+
+	/**
+	 * @param cle
+	 * @param graineCourse
+	 *            graine de la course à laquelle le résultat doit servir
+	 * @return le résultat enregistré pour ce chromosome, null s'il n'a pas été
+	 *         évalué lors de la dernière génération ou si, les parties devant
+	 *         être accumulées, elles l'ont été dans une course d'une autre
+	 *         graine
+	 */
+	public ExperimentResult get(Cle cle, long graineCourse) {
+		if (politique == Politique.ACCUMULER && graineCourse != graine)
+			return null;
+		return resultats.get(cle);
+	}
+
+	/**
+	 * Remplace le contenu du cache par les résultats de la génération qui
+	 * vient d'être évaluée : les chromosomes qui n'en font plus partie sont
+	 * oubliés, ce qui borne la taille du cache à celle de la population
+	 *
+	 * @param cles
+	 * @param nouveauxResultats
+	 *            le résultat de chaque chromosome, dans l'ordre des clés
+	 * @param graineCourse
+	 *            graine de la course qui les a produits
+	 */
+	public void remplacer(List<Cle> cles, ExperimentResult[] nouveauxResultats,
+			long graineCourse) {
+		Map<Cle, ExperimentResult> remplacement = new HashMap<Cle, ExperimentResult>(
+				cles.size() * 2);
+		for (int i = 0; i < nouveauxResultats.length; i++)
+			remplacement.put(cles.get(i), nouveauxResultats[i]);
+		resultats = remplacement;
+		graine = graineCourse;
+	}
+
+	/**
+	 * @return le contenu du cache, pour l'enregistrer dans un point de reprise
+	 */
+	Map<Cle, ExperimentResult> getContenu() {
+		return resultats;
+	}
+
+	/**
+	 * @return la graine de la course qui a produit le contenu du cache
+	 */
+	long getGraine() {
+		return graine;
+	}
+
+	/**
+	 * Remplace le contenu du cache par celui d'un point de reprise
+	 *
+	 * @param contenu
+	 * @param graineCourse
+	 *            graine de la course qui l'a produit
+	 */
+	void restaurer(Map<Cle, ExperimentResult> contenu, long graineCourse) {
+		resultats = new HashMap<Cle, ExperimentResult>(contenu);
+		graine = graineCourse;
+	}
+
+	/**
+	 * @return le nombre de chromosomes en cache
+	 */
+	public int size() {
+		return resultats.size();
+	}
+}
@@ -0,0 +1,311 @@
+package algorithme_apprentissage;
+
+import game.ExperimentResult;
+import game.core.GameRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Evalue une génération par "course" statistique : au lieu de jouer un nombre
+ * fixe de parties pour chaque chromosome, on joue les parties par manches et
+ * on ne continue à faire jouer que les concurrents dont la place reste
+ * incertaine.
+ *
+ * Après chaque manche, on calcule pour chaque concurrent un intervalle de
+ * confiance sur son score moyen (moyenne +/- z erreurs types). L'erreur type
+ * d'un concurrent ne descend pas sous celle que donnerait l'écart type commun
+ * à tous les concurrents, ni sous un point de score : un concurrent qui a
+ * fait plusieurs fois le même score n'est pas pour autant classé avec
+ * certitude. Les meilleurs
+ * concurrents forment l'élite ; un concurrent hors élite dont l'intervalle
+ * passe entièrement sous le score moyen de l'élite est abandonné, de même
+ * qu'un membre de l'élite dont l'intervalle passe entièrement au-dessus du
+ * score moyen des autres.
+ * Seuls les concurrents encore en balance jouent la manche suivante, jusqu'à
+ * un nombre maximal de parties.
+ *
+ * La manche k se joue avec la même graine pour tous les concurrents, de sorte
+ * qu'ils sont comparés sur les mêmes parties. Le déroulement de la course ne
+ * dépend que de la graine reçue, pas du nombre de threads.
+ *
+ * Un concurrent peut prendre le départ avec des parties déjà jouées (voir
+ * CachePerformances) : elles comptent comme les autres, et il ne joue que les
+ * parties qui lui manquent. Ces parties doivent venir d'une course de même
+ * graine, pour que sa k-ième partie soit celle de ses concurrents.
+ */
+public class EvaluateurCourse {
+
+	// Plus petite erreur type prêtée à un score moyen, en points de score
+	public static final double ERREUR_TYPE_MIN = 1;
+
+
+	/**
+	 * Un concurrent de la course : typiquement les contrôleurs construits à
+	 * partir d'un chromosome. Les parties d'un même concurrent sont jouées
+	 * l'une après l'autre, jamais en même temps.
+	 */
+	public interface Concurrent {
+		/**
+		 * Joue une partie
+		 *
+		 * @param graine
+		 *            graine de la partie
+		 * @return le résultat de la partie
+		 */
+		ExperimentResult jouer(long graine);
+	}
+
+	// Pool de threads sur lequel les parties d'une manche sont réparties
+	private final EvaluateurParallele evaluateur;
+	// Nombre de parties jouées par chaque concurrent avant tout abandon
+	private final int nombreMinParties;
+	// Nombre de parties au-delà duquel un concurrent ne joue plus
+	private final int nombreMaxParties;
+	// Nombre d'erreurs types de part et d'autre de la moyenne dans les
+	// intervalles de confiance
+	private final double z;
+	// Nombre de concurrents dont on veut connaître la place avec assurance
+	private final int tailleElite;
+	// Vrai si les meilleurs concurrents sont ceux qui ont le plus grand score
+	private final boolean maximiser;
+
+	/**
+	 * Constructeur de l'évaluateur
+	 *
+	 * @param evaluateur
+	 * @param nombreMinParties
+	 *            au moins 2, pour pouvoir estimer l'écart type
+	 * @param nombreMaxParties
+	 * @param z
+	 * @param tailleElite
+	 * @param maximiser
+	 */
+	public EvaluateurCourse(EvaluateurParallele evaluateur,
+			int nombreMinParties, int nombreMaxParties, double z,
+			int tailleElite, boolean maximiser) {
+		if (nombreMinParties < 2 || nombreMaxParties < nombreMinParties)
+			throw new IllegalArgumentException("Nombre de parties invalide : "
+					+ nombreMinParties + " à " + nombreMaxParties);
+		if (tailleElite < 1)
+			throw new IllegalArgumentException("Taille d'élite invalide : "
+					+ tailleElite);
+		this.evaluateur = evaluateur;
+		this.nombreMinParties = nombreMinParties;
+		this.nombreMaxParties = nombreMaxParties;
+		this.z = z;
+		this.tailleElite = tailleElite;
+		this.maximiser = maximiser;
+	}
+
+	/**
+	 * Fait courir les concurrents
+	 *
+	 * @param concurrents
+	 * @param graine
+	 *            graine dont sont tirées les graines des manches
+	 * @return les résultats de chaque concurrent, dans l'ordre des concurrents
+	 *         reçus
+	 */
+	public ExperimentResult[] evaluer(List<? extends Concurrent> concurrents,
+			long graine) {
+		return evaluer(concurrents,
+				new ExperimentResult[concurrents.size()], graine);
+	}
+
+	/**
+	 * Fait courir les concurrents en partant des parties qu'ils ont déjà
+	 * jouées
+	 *
+	 * @param concurrents
+	 *            un concurrent null ne joue plus : son résultat acquis est
+	 *            pris tel quel
+	 * @param acquis
+	 *            parties déjà jouées par chaque concurrent, null s'il n'en a
+	 *            joué aucune ; elles doivent avoir été jouées dans une course
+	 *            de même graine
+	 * @param graine
+	 *            graine dont sont tirées les graines des manches
+	 * @return les résultats de chaque concurrent, parties acquises comprises,
+	 *         dans l'ordre des concurrents reçus
+	 */
+	public ExperimentResult[] evaluer(List<? extends Concurrent> concurrents,
+			ExperimentResult[] acquis, long graine) {
+		int nombre = concurrents.size();
+		if (acquis.length != nombre)
+			throw new IllegalArgumentException("Il faut un résultat acquis par concurrent : "
+					+ acquis.length + " pour " + nombre);
+		GameRandom generateur = new GameRandom(graine);
+		long[] graines = new long[nombreMaxParties];
+		for (int k = 0; k < graines.length; k++)
+			graines[k] = generateur.nextLong();
+
+		int[][] scores = new int[nombre][];
+		int[] parties = new int[nombre];
+		long[] ticks = new long[nombre];
+		ExperimentResult[] resultats = new ExperimentResult[nombre];
+		boolean[] jouables = new boolean[nombre];
+		boolean[] enCourse = new boolean[nombre];
+		for (int i = 0; i < nombre; i++) {
+			jouables[i] = concurrents.get(i) != null;
+			if (acquis[i] == null) {
+				if (!jouables[i])
+					throw new IllegalArgumentException("Le concurrent " + i
+							+ " ne peut ni jouer ni être repris");
+				scores[i] = new int[nombreMaxParties];
+				continue;
+			}
+			parties[i] = acquis[i].getNumGames();
+			ticks[i] = acquis[i].getTicksPlayed();
+			scores[i] = Arrays.copyOf(acquis[i].getScores(),
+					Math.max(parties[i], nombreMaxParties));
+			resultats[i] = acquis[i];
+		}
+		selectionnerPartants(resultats, parties, jouables, enCourse);
+
+		List<Integer> partants = new ArrayList<Integer>(nombre);
+		List<Callable<ExperimentResult>> manche = new ArrayList<Callable<ExperimentResult>>(
+				nombre);
+		while (true) {
+			partants.clear();
+			manche.clear();
+			for (int i = 0; i < nombre; i++) {
+				if (!enCourse[i])
+					continue;
+				final Concurrent concurrent = concurrents.get(i);
+				final long graineManche = graines[parties[i]];
+				partants.add(i);
+				manche.add(new Callable<ExperimentResult>() {
+					public ExperimentResult call() {
+						return concurrent.jouer(graineManche);
+					}
+				});
+			}
+			if (manche.isEmpty())
+				return resultats;
+
+			List<ExperimentResult> partiesJouees = evaluateur.executer(manche);
+			for (int j = 0; j < partants.size(); j++) {
+				int i = partants.get(j);
+				ExperimentResult partie = partiesJouees.get(j);
+				for (int g = 0; g < partie.getNumGames()
+						&& parties[i] < nombreMaxParties; g++)
+					scores[i][parties[i]++] = partie.getScore(g);
+				ticks[i] += partie.getTicksPlayed();
+				resultats[i] = new ExperimentResult(Arrays.copyOf(scores[i],
+						parties[i]), ticks[i]);
+			}
+
+			selectionnerPartants(resultats, parties, jouables, enCourse);
+		}
+	}
+
+	/**
+	 * Détermine les concurrents qui jouent la manche suivante
+	 *
+	 * @param resultats
+	 * @param parties
+	 * @param jouables
+	 * @param enCourse
+	 *            rempli par la méthode
+	 */
+	private void selectionnerPartants(final ExperimentResult[] resultats,
+			int[] parties, boolean[] jouables, boolean[] enCourse) {
+		// Personne n'est départagé avant que tous aient joué le nombre minimal
+		// de parties
+		int nombre = resultats.length;
+		boolean premieresParties = false;
+		for (int i = 0; i < nombre; i++) {
+			enCourse[i] = jouables[i] && parties[i] < nombreMinParties;
+			premieresParties |= enCourse[i];
+		}
+		if (premieresParties || nombre == 0)
+			return;
+
+		// On classe les concurrents selon leur score moyen, du meilleur au
+		// moins bon
+		Integer[] classement = new Integer[nombre];
+		for (int i = 0; i < nombre; i++)
+			classement[i] = i;
+		Arrays.sort(classement, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Double.compare(moyenne(resultats[b]),
+						moyenne(resultats[a]));
+			}
+		});
+
+		// Un concurrent hors élite reste en course tant que son intervalle
+		// atteint le score moyen du dernier de l'élite ; un membre de l'élite
+		// tant que le sien descend jusqu'au score moyen du premier des autres
+		int elite = Math.min(tailleElite, nombre);
+		double seuilElite = moyenne(resultats[classement[elite - 1]]);
+		double plafondAutres = elite < nombre ? moyenne(resultats[classement[elite]])
+				: Double.NEGATIVE_INFINITY;
+		double ecartTypeCommun = ecartTypeCommun(resultats);
+
+		for (int r = 0; r < nombre; r++) {
+			int i = classement[r];
+			double moyenne = moyenne(resultats[i]);
+			double demiLargeur = demiLargeur(resultats[i], ecartTypeCommun);
+			boolean indecis = r < elite ? moyenne - demiLargeur <= plafondAutres
+					: moyenne + demiLargeur >= seuilElite;
+			enCourse[i] = jouables[i] && indecis
+					&& parties[i] < nombreMaxParties;
+		}
+	}
+
+	/**
+	 * @param resultat
+	 * @return le score moyen, orienté de sorte que plus grand soit meilleur
+	 */
+	private double moyenne(ExperimentResult resultat) {
+		return maximiser ? resultat.getMeanScore() : -resultat.getMeanScore();
+	}
+
+	/**
+	 * @param resultats
+	 * @return l'écart type des scores estimé sur l'ensemble des concurrents,
+	 *         chacun comptant pour ses parties au-delà de la première
+	 */
+	private static double ecartTypeCommun(ExperimentResult[] resultats) {
+		double carres = 0;
+		int degres = 0;
+		for (ExperimentResult resultat : resultats) {
+			int n = resultat.getNumGames();
+			if (n < 2)
+				continue;
+			carres += (n - 1) * resultat.getStdDev() * resultat.getStdDev();
+			degres += n - 1;
+		}
+		return degres > 0 ? Math.sqrt(carres / degres) : 0;
+	}
+
+	/**
+	 * @param resultat
+	 * @param ecartTypeCommun
+	 *            écart type commun à tous les concurrents de la manche
+	 * @return la demi largeur de l'intervalle de confiance sur le score moyen
+	 */
+	private double demiLargeur(ExperimentResult resultat,
+			double ecartTypeCommun) {
+		double erreurType = Math.max(resultat.getStdError(), ecartTypeCommun
+				/ Math.sqrt(resultat.getNumGames()));
+		return z * Math.max(erreurType, ERREUR_TYPE_MIN);
+	}
+
+	/**
+	 * @param resultats
+	 * @return le nombre total de ticks simulés pour obtenir ces résultats (les
+	 *         résultats null sont ignorés)
+	 */
+	public static long ticksJoues(ExperimentResult[] resultats) {
+		long total = 0;
+		for (ExperimentResult resultat : resultats)
+			if (resultat != null)
+				total += resultat.getTicksPlayed();
+		return total;
+	}
+}
@@ -0,0 +1,120 @@
+package algorithme_apprentissage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Répartit l'évaluation des chromosomes d'une génération sur un ensemble de
+ * threads de travail. Chaque évaluation est indépendante : elle joue sur son
+ * propre _G_ avec ses propres contrôleurs et générateurs de hasard, de sorte
+ * que le résultat ne dépend pas de l'ordre dans lequel les threads
+ * s'exécutent.
+ */
+public class EvaluateurParallele {
+
+	// Nombre de threads utilisés par défaut : un par coeur disponible
+	public static final int NOMBRE_THREADS_PAR_DEFAUT = Runtime.getRuntime()
+			.availableProcessors();
+
+	// Nombre de threads de travail
+	private final int nombreThreads;
+	// Pool de threads sur lequel les évaluations sont réparties
+	private final ExecutorService executeur;
+
+	/**
+	 * Constructeur de l'évaluateur, prenant en paramètre le nombre de threads
+	 * de travail à utiliser
+	 *
+	 * @param nombreThreads
+	 */
+	public EvaluateurParallele(int nombreThreads) {
+		if (nombreThreads < 1)
+			throw new IllegalArgumentException(
+					"Il faut au moins un thread d'évaluation : " + nombreThreads);
+		this.nombreThreads = nombreThreads;
+		this.executeur = Executors.newFixedThreadPool(nombreThreads,
+				new ThreadFactory() {
+					private int compteur = 0;
+
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "evaluateur-"
+								+ (compteur++));
+						// Les threads de travail n'empêchent pas la JVM de
+						// s'arrêter
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+	}
+
+	/**
+	 * Lance toutes les évaluations sur le pool de threads et attend leur fin
+	 *
+	 * @param evaluations
+	 * @return les scores, dans l'ordre des évaluations reçues
+	 */
+	public float[] evaluer(List<Callable<Float>> evaluations) {
+		List<Float> resultats = executer(evaluations);
+		float[] scores = new float[resultats.size()];
+		for (int i = 0; i < scores.length; i++)
+			scores[i] = resultats.get(i);
+		return scores;
+	}
+
+	/**
+	 * Lance toutes les tâches sur le pool de threads et attend leur fin
+	 *
+	 * @param taches
+	 * @return les résultats, dans l'ordre des tâches reçues
+	 */
+	public <T> List<T> executer(List<? extends Callable<T>> taches) {
+		List<Future<T>> futurs = new ArrayList<Future<T>>(taches.size());
+		for (Callable<T> tache : taches)
+			futurs.add(executeur.submit(tache));
+
+		List<T> resultats = new ArrayList<T>(futurs.size());
+		try {
+			for (Future<T> futur : futurs)
+				resultats.add(futur.get());
+		} catch (InterruptedException e) {
+			annuler(futurs);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Evaluation interrompue", e);
+		} catch (ExecutionException e) {
+			annuler(futurs);
+			throw new IllegalStateException("Echec d'une évaluation",
+					e.getCause());
+		}
+		return resultats;
+	}
+
+	/**
+	 * Annule les évaluations encore en attente
+	 *
+	 * @param resultats
+	 */
+	private void annuler(List<? extends Future<?>> resultats) {
+		for (Future<?> resultat : resultats)
+			resultat.cancel(true);
+	}
+
+	/**
+	 * @return le nombre de threads de travail
+	 */
+	public int getNombreThreads() {
+		return nombreThreads;
+	}
+
+	/**
+	 * Arrête le pool de threads une fois les évaluations en cours terminées
+	 */
+	public void arreter() {
+		executeur.shutdown();
+	}
+}
@@ -0,0 +1,79 @@
+package algorithme_apprentissage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Processus faisant évoluer une île de l'Archipel : une NotreAlgorithmeGenetique
+ * qui, toutes les Archipel.INTERVALLE_MIGRATION générations, envoie ses
+ * meilleurs individus au coordinateur et intègre ceux qu'il lui renvoie, puis
+ * lui envoie son meilleur individu après la dernière génération.
+ *
+ * Lancé par Archipel avec les arguments : port du coordinateur, numéro de
+ * l'île, taille de la population, nombre de générations, graine, nombre de
+ * threads d'évaluation.
+ */
+public class Ile {
+
+	public static void main(String[] args) {
+		int port = Integer.parseInt(args[0]);
+		int indice = Integer.parseInt(args[1]);
+		int taille = Integer.parseInt(args[2]);
+		int generations = Integer.parseInt(args[3]);
+		long graine = Long.parseLong(args[4]);
+		int threads = Integer.parseInt(args[5]);
+		if (generations < 1)
+			throw new IllegalArgumentException("Nombre de générations invalide : "
+					+ generations);
+
+		// Le générateur doit être initialisé avant de remplir la population
+		NotreAlgorithmeGenetique.initialiserHasard(graine);
+		NotreAlgorithmeGenetique population = new NotreAlgorithmeGenetique(
+				taille, threads);
+		Socket socket = null;
+		try {
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			DataInputStream entree = new DataInputStream(
+					new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream sortie = new DataOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()));
+			sortie.writeInt(indice);
+			sortie.flush();
+
+			for (int generation = 0; generation < generations; generation++) {
+				population.evaluationDeLaGenerationCourante();
+				if (generation == generations - 1) {
+					sortie.writeInt(generation);
+					Archipel.ecrire(sortie, population.emigrer(1));
+					sortie.flush();
+					break;
+				}
+				if (Archipel.migration(generation, generations)) {
+					sortie.writeInt(generation);
+					Archipel.ecrire(sortie,
+							population.emigrer(Archipel.NOMBRE_MIGRANTS));
+					sortie.flush();
+					population.immigrer(Archipel.lire(entree));
+				}
+				population.produireLaGenerationSuivante();
+			}
+		} catch (IOException ioe) {
+			System.out.print("Erreur sur l'île " + indice + " : ");
+			ioe.printStackTrace();
+			System.exit(1);
+		} finally {
+			population.terminer();
+			try {
+				if (socket != null)
+					socket.close();
+			} catch (IOException ioe) {
+				// rien à faire : on s'arrête
+			}
+		}
+	}
+}
@@ -1,14 +1,20 @@
 package algorithme_apprentissage;
 
 import game.Exec;
+import game.ExperimentResult;
 import game.controllers.PacmanControllerApprenant;
 import game.controllers.examples.RandomGhosts;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -21,9 +27,24 @@ public class NotreAlgorithmeGenetique {
 
 	// Nombre de chromosomes dans la population
 	static int TAILLE_POPULATION = 100;
-	// Nombre de parties de test jouées par chaque chromosome pour son
-	// évaluation de performance
-	public static final int NOMBRE_PARTIE_PAR_CHROMOSOME = 3;
+	// Nombre de parties de test jouées par chaque chromosome avant de pouvoir
+	// être écarté de la course (voir EvaluateurCourse)
+	public static final int NOMBRE_MIN_PARTIES_PAR_CHROMOSOME = 2;
+	// Nombre maximal de parties de test jouées par un chromosome dont la place
+	// dans l'élite reste incertaine
+	public static final int NOMBRE_MAX_PARTIES_PAR_CHROMOSOME = 8;
+	// Largeur, en erreurs types, des intervalles de confiance utilisés pour
+	// départager les chromosomes
+	public static final double Z_COURSE = 1.64;
+	// Nombre de chromosomes repris d'office dans la génération suivante
+	public static final int TAILLE_ELITE = 2;
+	// Ce qu'on fait des parties déjà jouées par un chromosome inchangé depuis
+	// la génération précédente
+	public static final CachePerformances.Politique POLITIQUE_CACHE = CachePerformances.Politique.ACCUMULER;
+	// Méthode de sélection des parents de la génération suivante
+	public static final Selecteur.Methode METHODE_SELECTION = Selecteur.Methode.ROULETTE;
+	// Nombre de générations entre deux points de reprise
+	public static final int INTERVALLE_REPRISE = 1;
 	// Chance de voir un gène muter lors du passage de génération
 	private static double CHANCE_MUTATION = 0.05;
 	// Chances de voir se produire un croisement entre deux chromosomes lors du
@@ -205,8 +226,19 @@ public class NotreAlgorithmeGenetique {
 
 	// Population de chromosomes
 	private ArrayList<Chromosome> population;
-	// Contrôleur des fantomes utilisé lors des tests
-	private RandomGhosts ghostAlgo = new RandomGhosts();
+	// Evaluateur répartissant les parties de test sur plusieurs threads
+	private EvaluateurParallele evaluateur;
+	// Course faisant jouer à chaque chromosome autant de parties que
+	// nécessaire pour le classer
+	private EvaluateurCourse course;
+	// Résultats de la génération précédente, réutilisés pour les
+	// chromosomes inchangés
+	private CachePerformances cache = new CachePerformances(POLITIQUE_CACHE);
+	// Graine des courses : la même à chaque génération, pour que les parties
+	// reprises du cache soient celles que jouent les autres chromosomes
+	private long graineCourse;
+	// Nombre de ticks simulés lors de la dernière évaluation
+	private long ticksDerniereEvaluation;
 	// Générateur de pseudo hasard
 	private static Random rand = new Random();
 	// Compteur des générations
@@ -220,28 +252,156 @@ public class NotreAlgorithmeGenetique {
 	 * @param taille
 	 */
 	public NotreAlgorithmeGenetique(int taille) {
+		this(taille, EvaluateurParallele.NOMBRE_THREADS_PAR_DEFAUT);
+	}
+
+	/**
+	 * Constructeur de notre algorithme génétique, prenant en paramètre la
+	 * taille de la population et le nombre de threads utilisés pour évaluer
+	 * chaque génération
+	 * 
+	 * @param taille
+	 * @param nombreThreads
+	 */
+	public NotreAlgorithmeGenetique(int taille, int nombreThreads) {
+		evaluateur = new EvaluateurParallele(nombreThreads);
+		course = new EvaluateurCourse(evaluateur,
+				NOMBRE_MIN_PARTIES_PAR_CHROMOSOME,
+				NOMBRE_MAX_PARTIES_PAR_CHROMOSOME, Z_COURSE, TAILLE_ELITE, true);
 		population = new ArrayList<Chromosome>();
 		for (int i = 0; i < taille; i++) {
 			Chromosome entry = new Chromosome();
 			entry.remplissageGenesAuHasard();
 			population.add(entry);
 		}
+		graineCourse = rand.nextLong();
+	}
+
+	/**
+	 * Constructeur de notre algorithme génétique reprenant un apprentissage
+	 * là où il a été sauvegardé : la population, ses performances, le
+	 * générateur de hasard et le cache sont restaurés, le compteur de
+	 * générations est remis à la génération sauvegardée
+	 * 
+	 * @param pointDeReprise
+	 * @param nombreThreads
+	 */
+	public NotreAlgorithmeGenetique(PointDeReprise pointDeReprise,
+			int nombreThreads) {
+		this(0, nombreThreads);
+		for (int i = 0; i < pointDeReprise.genes.length; i++) {
+			Chromosome entry = new Chromosome();
+			System.arraycopy(pointDeReprise.genes[i], 0, entry.genes, 0,
+					entry.genes.length);
+			entry.setPerformance(pointDeReprise.performances[i]);
+			population.add(entry);
+		}
+		rand = pointDeReprise.hasard;
+		graineCourse = pointDeReprise.graineCourse;
+		cache.restaurer(pointDeReprise.cache, pointDeReprise.graineCache);
+		compteurGenerations = pointDeReprise.generation;
+	}
+
+	/**
+	 * Sauvegarde l'état de l'apprentissage, à appeler une fois la génération
+	 * courante évaluée
+	 * 
+	 * @param fichier
+	 * @param debut
+	 *            instant de départ de l'apprentissage
+	 * @throws IOException
+	 */
+	public void sauvegarder(File fichier, long debut) throws IOException {
+		double[][] genes = new double[population.size()][];
+		float[] performances = new float[population.size()];
+		for (int i = 0; i < genes.length; i++) {
+			genes[i] = population.get(i).genes.clone();
+			performances[i] = population.get(i).getPerformance();
+		}
+		new PointDeReprise(compteurGenerations, debut, genes, performances,
+				rand, graineCourse, cache.getContenu(), cache.getGraine())
+				.ecrire(fichier);
 	}
 
 	/**
 	 * Evalue la génération courante, en lançant des tests sur chaque individu
-	 * et en récupérant sa performance
+	 * et en récupérant sa performance. Les parties sont jouées par manches
+	 * (voir EvaluateurCourse) : un individu clairement distancé par l'élite
+	 * arrête de jouer après quelques parties, tandis que ceux qui lui
+	 * disputent sa place jouent des parties supplémentaires. Chaque individu
+	 * reçoit une graine tirée dans l'ordre de la population pour son
+	 * contrôleur, et les manches une graine commune à toutes les générations,
+	 * ce qui rend le résultat identique quel que soit le nombre de threads.
+	 * 
+	 * Les individus identiques ne sont évalués qu'une fois, et ceux déjà
+	 * présents dans la génération précédente repartent de leurs parties
+	 * d'alors (voir CachePerformances).
 	 */
 	public void evaluationDeLaGenerationCourante() {
-		Exec exec = new Exec();
-		for (Chromosome chromosome : population) {
-			PacmanControllerApprenant pacmanAlgo = new PacmanControllerApprenant(
+		// Exec peut être partagé : chaque partie garde son état en local
+		final Exec exec = new Exec();
+		Map<CachePerformances.Cle, Integer> indices = new HashMap<CachePerformances.Cle, Integer>();
+		List<CachePerformances.Cle> cles = new ArrayList<CachePerformances.Cle>();
+		List<EvaluateurCourse.Concurrent> concurrents = new ArrayList<EvaluateurCourse.Concurrent>();
+		List<ExperimentResult> acquis = new ArrayList<ExperimentResult>();
+		int[] concurrentDe = new int[population.size()];
+		for (int c = 0; c < population.size(); c++) {
+			Chromosome chromosome = population.get(c);
+			CachePerformances.Cle cle = new CachePerformances.Cle(
 					chromosome.genes);
-			float score;
-			score = exec.runExperiment(pacmanAlgo, ghostAlgo,
-					NOMBRE_PARTIE_PAR_CHROMOSOME);
-			chromosome.setPerformance(score * (CARRE ? score : 1));
+			Integer indice = indices.get(cle);
+			if (indice == null) {
+				indice = concurrents.size();
+				indices.put(cle, indice);
+				cles.add(cle);
+				ExperimentResult ancien = cache.get(cle, graineCourse);
+				acquis.add(ancien);
+				if (ancien != null
+						&& cache.getPolitique() == CachePerformances.Politique.REUTILISER) {
+					// le résultat est repris tel quel
+					concurrents.add(null);
+				} else {
+					// Chaque individu a ses propres contrôleurs et son propre
+					// générateur de hasard
+					final PacmanControllerApprenant pacmanAlgo = new PacmanControllerApprenant(
+							chromosome.genes, new Random(rand.nextLong()));
+					final RandomGhosts fantomes = new RandomGhosts();
+					concurrents.add(new EvaluateurCourse.Concurrent() {
+						public ExperimentResult jouer(long graine) {
+							return exec.evaluate(pacmanAlgo, fantomes, 1,
+									graine);
+						}
+					});
+				}
+			}
+			concurrentDe[c] = indice;
+		}
+
+		ExperimentResult[] resultatsAcquis = acquis
+				.toArray(new ExperimentResult[acquis.size()]);
+		ExperimentResult[] resultats = course.evaluer(concurrents,
+				resultatsAcquis, graineCourse);
+		for (int c = 0; c < concurrentDe.length; c++) {
+			float score = (float) resultats[concurrentDe[c]].getMeanScore();
+			population.get(c).setPerformance(score * (CARRE ? score : 1));
 		}
+		cache.remplacer(cles, resultats, graineCourse);
+		ticksDerniereEvaluation = EvaluateurCourse.ticksJoues(resultats)
+				- EvaluateurCourse.ticksJoues(resultatsAcquis);
+	}
+
+	/**
+	 * @return le nombre de ticks simulés lors de la dernière évaluation
+	 */
+	public long getTicksDerniereEvaluation() {
+		return ticksDerniereEvaluation;
+	}
+
+	/**
+	 * Libère les threads utilisés pour l'évaluation
+	 */
+	public void terminer() {
+		evaluateur.arreter();
 	}
 
 	/**
@@ -256,13 +416,19 @@ public class NotreAlgorithmeGenetique {
 		// génération
 		population.add(new Chromosome(pool.get(0)));
 		population.add(new Chromosome(pool.get(1)));
+		// Le sélecteur est préparé une fois pour toute la génération
+		float[] performances = new float[pool.size()];
+		for (int i = 0; i < performances.length; i++)
+			performances[i] = pool.get(i).performance;
+		Selecteur selecteur = new Selecteur(METHODE_SELECTION, performances,
+				Selecteur.TAILLE_TOURNOI_PAR_DEFAUT);
 		// On boucle tant que la population n'est pas remplie de nouveaux gènes
 		for (int x = pool.size() - 1; x >= 2; x -= 2) {
 
-			// On sélectionne deux membres de la génération précédente selon le
-			// principe de la roulette wheel
-			Chromosome n1 = selectMember(pool);
-			Chromosome n2 = selectMember(pool);
+			// On sélectionne deux membres de la génération précédente (par
+			// défaut selon le principe de la roulette wheel)
+			Chromosome n1 = pool.get(selecteur.selectionner(rand));
+			Chromosome n2 = pool.get(selecteur.selectionner(rand));
 
 			// On croise les chromosome et on les mute si nécessaire
 			n1.croisement(n2);
@@ -276,34 +442,54 @@ public class NotreAlgorithmeGenetique {
 	}
 
 	/**
-	 * Applique le principe de la roulette wheel pour sélectionner un membre de
-	 * la population
+	 * Réinitialise le générateur de pseudo hasard avec une graine, pour
+	 * rendre un apprentissage reproductible (utilisé par les îles de
+	 * l'Archipel)
 	 * 
-	 * @param population
-	 * @return le chromosome sélectionné
+	 * @param graine
 	 */
-	private Chromosome selectMember(ArrayList<Chromosome> population) {
-		// On calcule la somme des performances des chromosomes de la population
-		double total = 0.0;
-		for (int x = population.size() - 1; x >= 0; x--) {
-			total += population.get(x).performance;
-		}
+	static void initialiserHasard(long graine) {
+		rand = new Random(graine);
+	}
 
-		// On choisit au hasard une valeur entre 0 et la total calculé
-		double slice = total * rand.nextDouble();
+	/**
+	 * Renvoie les meilleurs individus de la génération courante, une fois
+	 * celle-ci évaluée, pour les faire migrer vers une autre île
+	 * 
+	 * @param nombre
+	 * @return les migrants, du meilleur au moins bon
+	 */
+	public List<Archipel.Migrant> emigrer(int nombre) {
+		ArrayList<Chromosome> classement = new ArrayList<Chromosome>(
+				population);
+		Collections.sort(classement);
+		List<Archipel.Migrant> migrants = new ArrayList<Archipel.Migrant>(
+				nombre);
+		for (int i = 0; i < nombre && i < classement.size(); i++) {
+			Chromosome chromosome = classement.get(i);
+			migrants.add(new Archipel.Migrant(chromosome.genes.clone(),
+					chromosome.getPerformance()));
+		}
+		return migrants;
+	}
 
-		// On boucle pour trouver le gène auquel cela correspond
-		double totalCourant = 0;
-		for (int x = population.size() - 1; x >= 0; x--) {
-			Chromosome courant = population.get(x);
-			totalCourant += courant.performance;
-			if (totalCourant >= slice) {
-				return courant;
-			}
+	/**
+	 * Remplace les moins bons individus de la génération courante, une fois
+	 * celle-ci évaluée, par des migrants venus d'une autre île. Les migrants
+	 * gardent la performance mesurée sur leur île d'origine.
+	 * 
+	 * @param migrants
+	 */
+	public void immigrer(List<Archipel.Migrant> migrants) {
+		Collections.sort(population);
+		for (int m = 0; m < migrants.size() && m < population.size(); m++) {
+			Chromosome chromosome = new Chromosome();
+			Archipel.Migrant migrant = migrants.get(m);
+			System.arraycopy(migrant.genes, 0, chromosome.genes, 0,
+					chromosome.genes.length);
+			chromosome.setPerformance(migrant.performance);
+			population.set(population.size() - 1 - m, chromosome);
 		}
-		// Si ce point est atteint c'est que le dernier chromosome de la
-		// population doit être sélectionné
-		return population.get(population.size() - 1);
 	}
 
 	/**
@@ -324,19 +510,52 @@ public class NotreAlgorithmeGenetique {
 	}
 
 	/**
-	 * Méthode de test de l'algorithme génétique
+	 * Méthode de test de l'algorithme génétique. Avec les arguments
+	 * "-reprise fichier", reprend l'apprentissage sauvegardé dans le fichier
+	 * indiqué (un fichier pacman_reprise_*.bin)
 	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) {
-		NotreAlgorithmeGenetique population = new NotreAlgorithmeGenetique(
-				TAILLE_POPULATION);
-		compteurGenerations = 0;
-		// On sauve le temps initial afin de savoir générer des logs uniques
-		// lors de chaque exécution
-		long time = System.currentTimeMillis();
+		NotreAlgorithmeGenetique population;
+		long time;
+		boolean reprendre = args.length >= 2 && args[0].equals("-reprise");
+		if (reprendre) {
+			PointDeReprise pointDeReprise;
+			try {
+				pointDeReprise = PointDeReprise.lire(new File(args[1]));
+			} catch (IOException ioe) {
+				System.out.print("Erreur : ");
+				ioe.printStackTrace();
+				return;
+			}
+			population = new NotreAlgorithmeGenetique(pointDeReprise,
+					EvaluateurParallele.NOMBRE_THREADS_PAR_DEFAUT);
+			// On reprend les logs de l'exécution interrompue
+			time = pointDeReprise.getDebut();
+			System.out.println("Reprise après la génération "
+					+ compteurGenerations);
+			// La génération sauvegardée est déjà évaluée et loguée : on passe
+			// directement à la suivante
+			population.produireLaGenerationSuivante();
+			compteurGenerations++;
+		} else {
+			population = new NotreAlgorithmeGenetique(TAILLE_POPULATION);
+			compteurGenerations = 0;
+			// On sauve le temps initial afin de savoir générer des logs
+			// uniques lors de chaque exécution
+			time = System.currentTimeMillis();
+		}
 		String file = "pacman_log_" + time + SERIE + ".txt";
 		String evolutionGenes = "evolution_genes" + time + SERIE + ".txt";
+		File reprise = new File(System.getProperty("user.dir"),
+				"pacman_reprise_" + time + SERIE + ".bin");
+		// Les générations loguées après le point de reprise vont être
+		// rejouées : on retire leurs lignes des logs
+		if (reprendre) {
+			tronquer(file, compteurGenerations);
+			tronquer(evolutionGenes, compteurGenerations);
+		}
 
 		// On boucle pour atteindre les 100 générations
 		while (compteurGenerations < 100) {
@@ -349,7 +568,8 @@ public class NotreAlgorithmeGenetique {
 
 			// On imprime le temps mis pour l'évaluation
 			System.out.println((System.currentTimeMillis() - start)
-					+ " milli-secondes pour évaluer la génération.");
+					+ " milli-secondes pour évaluer la génération ("
+					+ population.getTicksDerniereEvaluation() + " ticks).");
 
 			// On calcule le scire moyen, minimal et maximal de la
 			// génération courante
@@ -395,10 +615,56 @@ public class NotreAlgorithmeGenetique {
 			ecrire(evolutionGenes, outputEvolutionGenes + "\n");
 			ecrire(file, scoreMoyen + "\n");
 
+			// On sauvegarde régulièrement de quoi reprendre l'apprentissage
+			if ((compteurGenerations + 1) % INTERVALLE_REPRISE == 0) {
+				try {
+					population.sauvegarder(reprise, time);
+				} catch (IOException ioe) {
+					System.out.print("Erreur : ");
+					ioe.printStackTrace();
+				}
+			}
+
 			// On produit la génération suivante
 			population.produireLaGenerationSuivante();
 			compteurGenerations++;
 		}
+		population.terminer();
+	}
+
+	/**
+	 * Ne garde que les premières lignes complètes d'un fichier de log
+	 * 
+	 * @param nomFic
+	 * @param lignes
+	 *            nombre de lignes gardées
+	 */
+	public static void tronquer(String nomFic, int lignes) {
+		File fichier = new File(System.getProperty("user.dir"), nomFic);
+		if (!fichier.exists())
+			return;
+		try {
+			RandomAccessFile raf = new RandomAccessFile(fichier, "rw");
+			try {
+				long longueur = 0;
+				long fin = 0;
+				int lues = 0;
+				int octet;
+				while (lues < lignes && (octet = raf.read()) >= 0) {
+					longueur++;
+					if (octet == '\n') {
+						lues++;
+						fin = longueur;
+					}
+				}
+				raf.setLength(fin);
+			} finally {
+				raf.close();
+			}
+		} catch (IOException ioe) {
+			System.out.print("Erreur : ");
+			ioe.printStackTrace();
+		}
 	}
 
 	/**
@@ -1,6 +1,7 @@
 package algorithme_apprentissage;
 
 import game.Exec;
+import game.ExperimentResult;
 import game.controllers.examples.LearningController;
 import game.controllers.examples.NearestPillPacManVS;
 import game.core.Game.DM;
@@ -8,6 +9,7 @@ import game.core.Game.DM;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Random;
 
 import utils.Util;
@@ -27,6 +29,12 @@ public class OurGeneticAlgorithm {
 	static int POPULATION_SIZE = 100;
 	private static double mutationChance = 0; // en pourcent
 	private static double crossRate = 0;
+	// racing: every ghost team plays at least MIN_TRIALS games and at most
+	// MAX_TRIALS, the extra games going to the teams close to the elite
+	public static final int MIN_TRIALS = 2;
+	public static final int MAX_TRIALS = 8;
+	public static final double RACE_Z = 1.64;
+	public static final int ELITE_SIZE = 2;
 
 	// public static final int PROPENSION_HAUT = 0;
 	// public static final int PROPENSION_DROITE = PROPENSION_HAUT + 1;
@@ -194,21 +202,31 @@ public class OurGeneticAlgorithm {
 	 * in a full simulation before getting evaluated (e.g based on its
 	 * performance)
 	 */
-	NearestPillPacManVS p = new NearestPillPacManVS();
+	EvaluateurParallele evaluator = new EvaluateurParallele(
+			EvaluateurParallele.NOMBRE_THREADS_PAR_DEFAUT);
+	// the ghosts try to minimise Ms Pac-Man's score
+	EvaluateurCourse race = new EvaluateurCourse(evaluator, MIN_TRIALS,
+			MAX_TRIALS, RACE_Z, ELITE_SIZE, false);
 
 	public void evaluateGeneration() {
-		Exec exec = new Exec();
+		final Exec exec = new Exec();
+		List<EvaluateurCourse.Concurrent> contenders = new ArrayList<EvaluateurCourse.Concurrent>(
+				mPopulation.size());
 		for (int i = 0; i < mPopulation.size(); i++) {
-			// evaluation of the fitness function for each gene in the
-			// population goes HERE
-			// System.out.println("Gene " + i);
+			// each gene gets its own controllers, as games run in parallel
 			Chromosome g = mPopulation.get(i);
-			LearningController l = new LearningController(g.genes);
-			// long time_ago = new GregorianCalendar().getTimeInMillis();
-			float score = exec.runExperiment(p, l, 3);
-			g.setFitness(1000000000 / (score * score));
-			// System.out.println(new GregorianCalendar().getTimeInMillis() -
-			// time_ago);
+			final NearestPillPacManVS p = new NearestPillPacManVS();
+			final LearningController l = new LearningController(g.genes);
+			contenders.add(new EvaluateurCourse.Concurrent() {
+				public ExperimentResult jouer(long seed) {
+					return exec.evaluate(p, l, 1, seed);
+				}
+			});
+		}
+		ExperimentResult[] results = race.evaluer(contenders, rand.nextLong());
+		for (int i = 0; i < results.length; i++) {
+			float score = (float) results[i].getMeanScore();
+			mPopulation.get(i).setFitness(1000000000 / (score * score));
 		}
 	}
 
@@ -0,0 +1,123 @@
+package algorithme_apprentissage;
+
+import game.ExperimentResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sauvegarde de l'état complet d'un apprentissage à la fin de l'évaluation
+ * d'une génération : gènes et performances de la population, compteur de
+ * générations, état du générateur de hasard, graine des courses et résultats
+ * gardés en cache. Un
+ * apprentissage interrompu peut ainsi reprendre à la génération suivante,
+ * exactement comme s'il ne s'était jamais arrêté.
+ *
+ * Le fichier est d'abord écrit à côté de sa destination puis renommé, de
+ * sorte qu'un arrêt pendant l'écriture laisse intact le point de reprise
+ * précédent.
+ */
+public class PointDeReprise implements Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	// Génération évaluée au moment de la sauvegarde
+	final int generation;
+	// Instant de départ de l'apprentissage, qui sert à nommer les fichiers de
+	// log
+	final long debut;
+	// Gènes de chaque chromosome de la population
+	final double[][] genes;
+	// Performance de chaque chromosome de la population
+	final float[] performances;
+	// Générateur de hasard de l'algorithme génétique
+	final Random hasard;
+	// Graine des courses qui évaluent chaque génération
+	final long graineCourse;
+	// Résultats gardés en cache pour la génération suivante
+	final HashMap<CachePerformances.Cle, ExperimentResult> cache;
+	// Graine de la course qui a produit les résultats gardés en cache
+	final long graineCache;
+
+	PointDeReprise(int generation, long debut, double[][] genes,
+			float[] performances, Random hasard, long graineCourse,
+			Map<CachePerformances.Cle, ExperimentResult> cache,
+			long graineCache) {
+		this.generation = generation;
+		this.debut = debut;
+		this.genes = genes;
+		this.performances = performances;
+		this.hasard = hasard;
+		this.graineCourse = graineCourse;
+		this.cache = new HashMap<CachePerformances.Cle, ExperimentResult>(
+				cache);
+		this.graineCache = graineCache;
+	}
+
+	/**
+	 * @return la génération évaluée au moment de la sauvegarde
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return l'instant de départ de l'apprentissage
+	 */
+	public long getDebut() {
+		return debut;
+	}
+
+	/**
+	 * Ecrit le point de reprise dans un fichier, en remplaçant le précédent
+	 *
+	 * @param fichier
+	 * @throws IOException
+	 */
+	public void ecrire(File fichier) throws IOException {
+		File temporaire = new File(fichier.getPath() + ".tmp");
+		ObjectOutputStream sortie = new ObjectOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temporaire)));
+		try {
+			sortie.writeObject(this);
+		} finally {
+			sortie.close();
+		}
+		Files.move(temporaire.toPath(), fichier.toPath(),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Lit un point de reprise écrit par ecrire(-)
+	 *
+	 * @param fichier
+	 * @return le point de reprise
+	 * @throws IOException
+	 */
+	public static PointDeReprise lire(File fichier) throws IOException {
+		ObjectInputStream entree = new ObjectInputStream(
+				new BufferedInputStream(new FileInputStream(fichier)));
+		try {
+			return (PointDeReprise) entree.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Point de reprise illisible : " + fichier, e);
+		} catch (ClassCastException e) {
+			throw new IOException("Point de reprise illisible : " + fichier, e);
+		} finally {
+			entree.close();
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package algorithme_apprentissage;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Sélectionne les parents d'une génération selon leur performance. Le
+ * sélecteur est construit une fois par génération à partir des performances
+ * de la population ; chaque tirage coûte ensuite O(log n) (roulette et rang,
+ * par recherche dichotomique dans les sommes cumulées) ou O(taille du tournoi)
+ * au lieu de parcourir toute la population.
+ */
+public class Selecteur {
+
+	/**
+	 * Méthodes de sélection disponibles
+	 */
+	public enum Methode {
+		// probabilité proportionnelle à la performance (roulette wheel)
+		ROULETTE,
+		// le meilleur de quelques individus tirés au hasard
+		TOURNOI,
+		// probabilité proportionnelle au rang : le meilleur des n individus a
+		// un poids n, le moins bon un poids 1
+		RANG;
+	}
+
+	// Nombre d'individus tirés par tournoi par défaut
+	public static final int TAILLE_TOURNOI_PAR_DEFAUT = 3;
+
+	// Méthode de sélection
+	private final Methode methode;
+	// Performances de la population
+	private final float[] performances;
+	// Nombre d'individus tirés par tournoi
+	private final int tailleTournoi;
+	// Sommes cumulées des poids, pour la roulette et le rang
+	private double[] cumul;
+	// Individu correspondant à chaque somme cumulée
+	private int[] individus;
+
+	/**
+	 * Constructeur du sélecteur
+	 *
+	 * @param methode
+	 * @param performances
+	 *            performance de chaque individu (positives ou nulles pour la
+	 *            roulette)
+	 * @param tailleTournoi
+	 *            nombre d'individus tirés par tournoi
+	 */
+	public Selecteur(Methode methode, float[] performances, int tailleTournoi) {
+		if (performances.length == 0)
+			throw new IllegalArgumentException("Population vide");
+		if (tailleTournoi < 1)
+			throw new IllegalArgumentException("Taille de tournoi invalide : "
+					+ tailleTournoi);
+		this.methode = methode;
+		this.performances = performances.clone();
+		this.tailleTournoi = tailleTournoi;
+
+		int n = performances.length;
+		switch (methode) {
+		case ROULETTE:
+			// On cumule en partant de la fin de la population, comme le
+			// faisait le parcours linéaire : les tirages restent identiques
+			cumul = new double[n];
+			individus = new int[n];
+			double total = 0.0;
+			for (int k = 0; k < n; k++) {
+				individus[k] = n - 1 - k;
+				total += performances[individus[k]];
+				cumul[k] = total;
+			}
+			break;
+		case RANG:
+			Integer[] classement = new Integer[n];
+			for (int i = 0; i < n; i++)
+				classement[i] = i;
+			final float[] perf = this.performances;
+			Arrays.sort(classement, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Float.compare(perf[b], perf[a]);
+				}
+			});
+			cumul = new double[n];
+			individus = new int[n];
+			double somme = 0.0;
+			for (int r = 0; r < n; r++) {
+				individus[r] = classement[r];
+				somme += n - r;
+				cumul[r] = somme;
+			}
+			break;
+		case TOURNOI:
+			break;
+		}
+	}
+
+	/**
+	 * Tire un individu
+	 *
+	 * @param rand
+	 * @return l'indice de l'individu sélectionné
+	 */
+	public int selectionner(Random rand) {
+		if (methode == Methode.TOURNOI) {
+			int meilleur = rand.nextInt(performances.length);
+			for (int t = 1; t < tailleTournoi; t++) {
+				int candidat = rand.nextInt(performances.length);
+				if (performances[candidat] > performances[meilleur])
+					meilleur = candidat;
+			}
+			return meilleur;
+		}
+
+		// On choisit au hasard une valeur entre 0 et le total, puis on cherche
+		// la première somme cumulée qui l'atteint
+		double slice = cumul[cumul.length - 1] * rand.nextDouble();
+		int bas = 0;
+		int haut = cumul.length - 1;
+		if (cumul[haut] < slice)
+			return individus[0];
+		while (bas < haut) {
+			int milieu = (bas + haut) >>> 1;
+			if (cumul[milieu] >= slice)
+				haut = milieu;
+			else
+				bas = milieu + 1;
+		}
+		return individus[bas];
+	}
+
+	/**
+	 * @return la méthode de sélection
+	 */
+	public Methode getMethode() {
+		return methode;
+	}
+}
@@ -0,0 +1,100 @@
+package game;
+
+/*
+ * Timing statistics of one controller over a timed game (see Exec.getPacManStats()/getGhostStats()):
+ * how long each request took to be answered, measured from the moment the game asked for a move (so
+ * time spent waiting for a thread of the pool counts), how many replies came after their due time,
+ * how many ticks were played without a fresh move from the controller (its previous move was used)
+ * and how many requests were dropped because the controller was still busy with an earlier one.
+ * All methods are thread-safe.
+ */
+public final class ControllerStats
+{
+	private final String name;
+	private final LatencyHistogram latencies=new LatencyHistogram();
+	private long requests,missedDeadlines,staleMoves,skippedRequests;
+
+	public ControllerStats(String name)
+	{
+		this.name=name;
+	}
+
+	synchronized void recordRequest()
+	{
+		requests++;
+	}
+
+	synchronized void recordReply(long latencyNanos,boolean missedDeadline)
+	{
+		latencies.record(latencyNanos/1000);
+
+		if(missedDeadline)
+			missedDeadlines++;
+	}
+
+	synchronized void recordStaleMove()
+	{
+		staleMoves++;
+	}
+
+	synchronized void recordSkippedRequest()
+	{
+		skippedRequests++;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	//Number of moves requested (one per tick)
+	public synchronized long getRequests()
+	{
+		return requests;
+	}
+
+	//Number of replies received
+	public synchronized long getReplies()
+	{
+		return latencies.getCount();
+	}
+
+	//Number of replies received after their due time
+	public synchronized long getMissedDeadlines()
+	{
+		return missedDeadlines;
+	}
+
+	//Number of ticks the game advanced without a reply to that tick's request
+	public synchronized long getStaleMoves()
+	{
+		return staleMoves;
+	}
+
+	//Number of requests never served because a later one replaced them while the controller was busy
+	public synchronized long getSkippedRequests()
+	{
+		return skippedRequests;
+	}
+
+	//Latency, in microseconds, below which the percentage specified of the replies arrived
+	public synchronized long getLatencyAtPercentile(double percentile)
+	{
+		return latencies.getValueAtPercentile(percentile);
+	}
+
+	public synchronized long getMaxLatency()
+	{
+		return latencies.getMax();
+	}
+
+	public synchronized double getMeanLatency()
+	{
+		return latencies.getMean();
+	}
+
+	public synchronized String toString()
+	{
+		return name+"\trequests: "+requests+"\tmissed: "+missedDeadlines+"\tstale: "+staleMoves+"\tskipped: "+skippedRequests+"\t"+latencies;
+	}
+}
@@ -1,17 +1,28 @@
 package game;
 
+import game.controllers.BatchGhostController;
+import game.controllers.BatchPacManController;
 import game.controllers.GhostController;
 import game.controllers.Human;
 import game.controllers.PacmanControllerApprenant;
 import game.controllers.PacManController;
 import game.controllers.examples.LearningController;
 import game.controllers.examples.RandomGhosts;
+import game.core.BatchGame;
+import game.core.BinaryReplay;
 import game.core.G;
+import game.core.Game;
+import game.core.GameRandom;
 import game.core.GameView;
+import game.core.ReadOnlyGame;
 import game.core.Replay;
 import game.core._G_;
 import game.core._RG_;
 
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /*
  * This class may be used to execute the game in timed or un-timed modes, with or without
  * visuals. Competitors should implement their controllers in game.entries.ghosts and 
@@ -34,6 +45,7 @@ public class Exec
 		
 		//run game with time limits (un-comment if required)
 //		exec.runGameTimed(new Human(),new AttractRepelGhosts(true),true);
+//		System.out.println(exec.getPacManStats()+"\n"+exec.getGhostStats());		//latencies and missed deadlines of the timed game
 		//run game with time limits. Here NearestPillPacManVS is chosen to illustrate how to use graphics for debugging/information purposes
 		double[] chromosome = {0.021928292,		//PROPENSION_HAUT
 				0.001017273,					//PROPENSION_DROITE
@@ -58,8 +70,8 @@ public class Exec
 //		exec.replayGame("human-v-Legacy2.txt");
 	}
 	
-    protected int pacDir;
-    protected int[] ghostDirs;
+    protected volatile int pacDir;
+    protected volatile int[] ghostDirs;
     protected _G_ game;
     protected PacMan pacMan;
     protected Ghosts ghosts;
@@ -73,28 +85,87 @@ public class Exec
      * For running multiple games without visuals. This is useful to get a good idea of how well a controller plays
      * against a chosen opponent: the random nature of the game means that performance can vary from game to game. 
      * Running many games and looking at the average score (and standard deviation/error) helps to get a better
-     * idea of how well the controller is likely to do in the competition.
+     * idea of how well the controller is likely to do in the competition. Delegates to evaluate(-) and may thus
+     * be called from several threads at once.
      */
     public float runExperiment(PacManController pacManController,GhostController ghostController,int trials)
     {
-    	double avgScore=0;
+		return (float)evaluate(pacManController,ghostController,trials).getMeanScore();
+    }
+    
+    /*
+     * Reentrant version of runExperiment(-): all per-game state is kept local to the call, so the same Exec may run
+     * many experiments concurrently (the controllers themselves must not be shared between concurrent calls unless
+     * they are stateless). Returns the score of every game along with the mean, standard deviation and the number 
+     * of ticks played.
+     */
+    public ExperimentResult evaluate(PacManController pacManController,GhostController ghostController,int trials)
+    {
+    	return evaluate(pacManController,ghostController,trials,GameRandom.newSeed());
+    }
+    
+    /*
+     * Same as above but every game is seeded from the seed supplied: given controllers that only draw random numbers
+     * from game.getRandom() (or from their own seeded generator), the experiment is fully reproducible.
+     */
+    public ExperimentResult evaluate(PacManController pacManController,GhostController ghostController,int trials,long seed)
+    {
+    	int[] scores=new int[trials];
+    	long ticks=0;
     	
-		game=new _G_();
+    	GameRandom seeds=new GameRandom(seed);
+		_G_ game=new _G_();
+		ReadOnlyGame pacManView=new ReadOnlyGame(game),ghostsView=new ReadOnlyGame(game);
 		
 		for(int i=0;i<trials;i++)
 		{
-			game.newGame();
+			game.newGame(seeds.nextLong());
 			
 			while(!game.gameOver())
 			{
 				long due=System.currentTimeMillis()+G.DELAY;
-		        game.advanceGame(pacManController.getAction(game.copy(),due),ghostController.getActions(game.copy(),due));
+		        game.advanceGame(pacManController.getAction(pacManView.refresh(),due),ghostController.getActions(ghostsView.refresh(),due));
 			}
 			
-			avgScore+=game.getScore();
+			scores[i]=game.getScore();
+			ticks+=game.getTotalTime();
 		}
 		
-		return (float) avgScore/trials;
+		return new ExperimentResult(scores,ticks);
+    }
+    
+    /*
+     * Plays 'numGames' games in lockstep over the columnar arrays of a BatchGame with batch controllers, which receive all
+     * games still running at every tick. Game i is seeded like the i-th game of evaluate(-) given the same seed, so
+     * wrapping the controllers used with evaluate(-) in BatchPacManAdapter/BatchGhostAdapter plays the same games. Only
+     * controllers that read the batch directly (e.g., BatchRandomNonRevPacMan/BatchRandomGhosts) run faster than evaluate(-).
+     */
+    public ExperimentResult evaluateBatch(BatchPacManController pacManController,BatchGhostController ghostController,int numGames,long seed)
+    {
+    	BatchGame batch=new BatchGame(numGames);
+    	int[] pacManDirs=new int[numGames];
+    	int[][] ghostDirs=new int[numGames][];
+    	
+    	batch.newGames(seed);
+    	
+    	while(!batch.allOver())
+    	{
+    		long due=System.currentTimeMillis()+G.DELAY;
+    		pacManController.getActions(batch,due,pacManDirs);
+    		ghostController.getActions(batch,due,ghostDirs);
+    		batch.advance(pacManDirs,ghostDirs);
+    	}
+    	
+    	int[] scores=new int[numGames];
+    	long ticks=0;
+    	
+    	for(int i=0;i<numGames;i++)
+    	{
+    		scores[i]=batch.getScore(i);
+    		ticks+=batch.getTotalTime(i);
+    	}
+    	
+    	return new ExperimentResult(scores,ticks);
     }
     
     /*
@@ -107,6 +178,7 @@ public class Exec
 	{
 		game=new _G_();
 		game.newGame();
+		ReadOnlyGame pacManView=new ReadOnlyGame(game),ghostsView=new ReadOnlyGame(game);
 
 		GameView gv=null;
 		
@@ -116,7 +188,7 @@ public class Exec
 		while(!game.gameOver())
 		{
 			long due=System.currentTimeMillis()+G.DELAY;
-	        game.advanceGame(pacManController.getAction(game.copy(),due),ghostController.getActions(game.copy(),due));
+	        game.advanceGame(pacManController.getAction(pacManView.refresh(),due),ghostController.getActions(ghostsView.refresh(),due));
 	        
 	        try{Thread.sleep(delay);}catch(Exception e){}
 	        
@@ -127,7 +199,9 @@ public class Exec
 	
     /*
      * Run game with time limit. This is how it will be done in the competition. 
-     * Can be played with and without visual display of game states.
+     * Can be played with and without visual display of game states. Without visuals, the game advances
+     * as soon as both controllers have replied (or G.DELAY has elapsed), so it runs at the speed of the
+     * slowest controller rather than at a fixed 25 ticks per second.
      */
 	public void runGameTimed(PacManController pacManController,GhostController ghostController,boolean visual)
 	{
@@ -148,17 +222,7 @@ public class Exec
 		
 		while(!game.gameOver())
 		{
-			pacMan.alert();
-			ghosts.alert();
-
-			try
-			{
-				Thread.sleep(G.DELAY);
-			}
-			catch(InterruptedException e)
-			{
-				e.printStackTrace();
-			}
+			awaitControllers(visual);
 
 	        game.advanceGame(pacDir,ghostDirs);	        
 	        
@@ -172,19 +236,17 @@ public class Exec
 	
 	/*
 	 * Runs a game and records all directions taken by all controllers - the data may then be used to replay any game saved using
-	 * replayGame(-).
+	 * replayGame(-). A file name ending with BinaryReplay.EXTENSION is recorded in the binary format of BinaryReplay.
 	 */
 	public void runGameTimedAndRecorded(PacManController pacManController,GhostController ghostController,boolean visual,String fileName)
 	{
-		StringBuilder history=new StringBuilder();
-		int lastLevel=0;
-		boolean firstWrite=false;	//this makes sure the content of any existing files is overwritten
-		
 		game=new _G_();
 		game.newGame();
 		pacMan=new PacMan(pacManController);
 		ghosts=new Ghosts(ghostController);
 		
+		Recording recording=fileName.endsWith(BinaryReplay.EXTENSION) ? new BinaryRecording(fileName) : new TextRecording(fileName);
+		
 		GameView gv=null;
 		
 		if(visual)
@@ -197,37 +259,17 @@ public class Exec
 		
 		while(!game.gameOver())
 		{
-			pacMan.alert();
-			ghosts.alert();
-
-			try
-			{
-				Thread.sleep(G.DELAY);
-			}
-			catch(InterruptedException e)
-			{
-				e.printStackTrace();
-			}
+			awaitControllers(visual);
 
 	        int[] actionsTaken=game.advanceGame(pacDir,ghostDirs);	        
 	        
 	        if(visual)
 	        	gv.repaint();
 	        
-	        history=addActionsToString(history,actionsTaken,game.getCurLevel()==lastLevel);
-        	
-	        //saves actions after every level
-        	if(game.getCurLevel()!=lastLevel)
-        	{
-        		Replay.saveActions(history.toString(),fileName,firstWrite);
-        		lastLevel=game.getCurLevel();
-        		firstWrite=true;
-        		history=new StringBuilder();
-        	}	   
+	        recording.record(actionsTaken);
 		}
 		
-		//save the final actions
-		Replay.saveActions(history.toString(),fileName,firstWrite);
+		recording.close();
 		
 		pacMan.kill();
 		ghosts.kill();
@@ -235,12 +277,19 @@ public class Exec
 	
 	/*
 	 * This is used to replay a recorded game. The controllers are given by the class Replay which may
-	 * also be used to load the actions from file.
+	 * also be used to load the actions from file. Binary replays (see BinaryReplay) are replayed from the start.
 	 */
 	public void replayGame(String fileName)
 	{
+		if(fileName.endsWith(BinaryReplay.EXTENSION))
+		{
+			replayGame(fileName,0);
+			return;
+		}
+		
 		_RG_ game=new _RG_();
 		game.newGame();
+		ReadOnlyGame pacManView=new ReadOnlyGame(game),ghostsView=new ReadOnlyGame(game);
 
 		Replay replay=new Replay(fileName);
 		PacManController pacManController=replay.getPacMan();
@@ -250,7 +299,7 @@ public class Exec
 		
 		while(!game.gameOver())
 		{
-	        game.advanceGame(pacManController.getAction(game.copy(),0),ghostController.getActions(game.copy(),0));
+	        game.advanceGame(pacManController.getAction(pacManView.refresh(),0),ghostController.getActions(ghostsView.refresh(),0));
 	        
 	        gv.repaint();
 	        
@@ -258,6 +307,91 @@ public class Exec
 		}
 	}
 	
+	//Replays a binary replay (see BinaryReplay) from the tick specified: the game jumps to that tick without replaying
+	//the levels before it
+	public void replayGame(String fileName,int fromTick)
+	{
+		_RG_ game=new _RG_();
+		game.newGame();
+		BinaryReplay replay;
+		
+		try
+		{
+			replay=new BinaryReplay(fileName);
+			replay.seek(game,fromTick);
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not load data!");
+			return;
+		}
+		catch(IllegalArgumentException e)		//the tick is not in the replay
+		{
+			System.out.println("Could not load data! "+e.getMessage());
+			return;
+		}
+		
+		ReadOnlyGame pacManView=new ReadOnlyGame(game),ghostsView=new ReadOnlyGame(game);
+		PacManController pacManController=replay.getPacMan();
+		GhostController ghostController=replay.getGhosts();
+		
+		GameView gv=new GameView(game).showGame();
+		
+		while(!game.gameOver() && game.getTotalTime()<replay.getNumTicks())
+		{
+	        game.advanceGame(pacManController.getAction(pacManView.refresh(),0),ghostController.getActions(ghostsView.refresh(),0));
+	        
+	        gv.repaint();
+	        
+	        try{Thread.sleep(G.DELAY);}catch(Exception e){}
+		}
+	}
+	
+	//Asks both controllers for their next move and waits until both have replied or the time for this tick is up. A
+	//controller that replies late has its move applied to a later tick, as in the competition (and the tick is counted
+	//as stale in its ControllerStats). With visuals, the full G.DELAY is kept so that the game is displayed at its
+	//normal speed.
+	private void awaitControllers(boolean visual)
+	{
+		long due=System.currentTimeMillis()+G.DELAY;
+		CountDownLatch pacManReply=new CountDownLatch(1),ghostsReply=new CountDownLatch(1);
+		
+		//the copies are taken here, on the game's thread, so that the controllers never read the game (or split its
+		//random number generator) while it advances, and timed games remain reproducible from their seed
+		pacMan.alert(pacManReply,game.copy(),due);
+		ghosts.alert(ghostsReply,game.copy(),due);
+		
+		try
+		{
+			if(!pacManReply.await(G.DELAY,TimeUnit.MILLISECONDS))
+				pacMan.recordStaleMove();
+			
+			if(!ghostsReply.await(Math.max(0,due-System.currentTimeMillis()),TimeUnit.MILLISECONDS))
+				ghosts.recordStaleMove();
+			
+			long left=due-System.currentTimeMillis();
+			
+			if(visual && left>0)
+				Thread.sleep(left);
+		}
+		catch(InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	//Timing statistics of Ms Pac-Man's controller in the latest timed game (null if none was played)
+	public ControllerStats getPacManStats()
+	{
+		return pacMan!=null ? pacMan.getStats() : null;
+	}
+	
+	//Timing statistics of the ghosts' controller in the latest timed game (null if none was played)
+	public ControllerStats getGhostStats()
+	{
+		return ghosts!=null ? ghosts.getStats() : null;
+	}
+	
     private StringBuilder addActionsToString(StringBuilder history,int[] actionsTaken,boolean newLine)
     {
     	history.append((game.getTotalTime()-1)+"\t"+actionsTaken[0]+"\t");
@@ -286,98 +420,138 @@ public class Exec
 	}
 	
 	/*
-	 * Wraps the controller in a thread for the timed execution. This class then updates the
-	 * directions for Exec to parse to the game.
+	 * Writes the directions taken during a game played by runGameTimedAndRecorded(-), one tick at a time, in
+	 * one of the formats of the replays: as text (see Replay) or in binary (see BinaryReplay).
 	 */
-	public class PacMan extends Thread 
+	private abstract class Recording
+	{
+		//Records the directions taken during the latest tick (as returned by advanceGame(-))
+		abstract void record(int[] actionsTaken);
+		
+		//Writes whatever is left once the game is over
+		abstract void close();
+	}
+	
+	//Text replays: the actions are saved after every level
+	private class TextRecording extends Recording
+	{
+		private final String fileName;
+		private StringBuilder history=new StringBuilder();
+		private int lastLevel=0;
+		private boolean firstWrite=false;	//this makes sure the content of any existing files is overwritten
+		
+		TextRecording(String fileName)
+		{
+			this.fileName=fileName;
+		}
+		
+		void record(int[] actionsTaken)
+		{
+	        history=addActionsToString(history,actionsTaken,game.getCurLevel()==lastLevel);
+        	
+	        //saves actions after every level
+        	if(game.getCurLevel()!=lastLevel)
+        	{
+        		Replay.saveActions(history.toString(),fileName,firstWrite);
+        		lastLevel=game.getCurLevel();
+        		firstWrite=true;
+        		history=new StringBuilder();
+        	}	   
+		}
+		
+		void close()
+		{
+			//save the final actions
+			Replay.saveActions(history.toString(),fileName,firstWrite);
+		}
+	}
+	
+	//Binary replays: 3 bytes per tick and the full state at the start of every level
+	private class BinaryRecording extends Recording
+	{
+		private BinaryReplay.Recorder recorder;	//null if the file could not be written
+		
+		BinaryRecording(String fileName)
+		{
+			try
+			{
+				recorder=new BinaryReplay.Recorder(fileName,game);
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not save data!");
+			}
+		}
+		
+		void record(int[] actionsTaken)
+		{
+			if(recorder==null)
+				return;
+			
+			try
+			{
+				recorder.record(game,actionsTaken);
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not save data!");
+				recorder=null;
+			}
+		}
+		
+		void close()
+		{
+			try
+			{
+				if(recorder!=null)
+					recorder.close();
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not save data!");
+			}
+		}
+	}
+	
+	/*
+	 * Wraps the controller for the timed execution: its moves are computed on the pool of threads
+	 * shared by all timed games (see ScheduledController). This class then updates the directions
+	 * for Exec to parse to the game.
+	 */
+	public class PacMan extends ScheduledController
 	{
 	    private PacManController pacMan;
-	    private boolean alive;
 
 	    public PacMan(PacManController pacMan) 
 	    {
+	    	super(pacMan);
 	        this.pacMan=pacMan;
-	        alive=true;
-	        start();
 	    }
 
-	    public synchronized void kill() 
-	    {
-	        alive=false;
-	        notify();
-	    }
-	    
-	    public synchronized void alert()
+	    protected void act(Game game,long timeDue)
 	    {
-	        notify();
-	    }
-
-	    public synchronized void run() 
-	    {
-	        while(alive) 
-	        {
-	        	try 
-	        	{
-	        		synchronized(this)
-	        		{
-	        			wait();
-	                }
-	                
-	        		setPacDir(pacMan.getAction(game.copy(),System.currentTimeMillis()+G.DELAY));
-	            } 
-	        	catch(InterruptedException e) 
-	        	{
-	                e.printStackTrace();
-	            }
-	        }
+	    	setPacDir(pacMan.getAction(game,timeDue));
 	    }
 	}
 	
 	/*
-	 * Wraps the controller in a thread for the timed execution. This class then updates the
-	 * directions for Exec to parse to the game.
+	 * Wraps the controller for the timed execution: its moves are computed on the pool of threads
+	 * shared by all timed games (see ScheduledController). This class then updates the directions
+	 * for Exec to parse to the game.
 	 */
-	public class Ghosts extends Thread 
+	public class Ghosts extends ScheduledController
 	{
 		private GhostController ghosts;
-	    private boolean alive;
 
 	    public Ghosts(GhostController ghosts) 
 	    {	    	
+	    	super(ghosts);
 	    	this.ghosts=ghosts;
-	        alive=true;
-	        start();
 	    }
 
-	    public synchronized void kill() 
+	    protected void act(Game game,long timeDue)
 	    {
-	        alive=false;
-	        notify();
-	    }
-
-	    public synchronized void alert() 
-	    {
-	        notify();
-	    }
-	    
-	    public synchronized void run() 
-	    {
-	        while(alive) 
-	        {
-	        	try 
-	        	{
-	        		synchronized(this)
-	        		{
-	        			wait();
-	                }
-
-	        		setGhostDirs(ghosts.getActions(game.copy(),System.currentTimeMillis()+G.DELAY));
-	            } 
-	        	catch(InterruptedException e) 
-	        	{
-	                e.printStackTrace();
-	            }
-	        }
+	    	setGhostDirs(ghosts.getActions(game,timeDue));
 	    }
 	}
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+package game;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/*
+ * Outcome of a batch of games played by Exec.evaluate(-): the score of every game together with
+ * the number of game ticks that were simulated. Instances are immutable and may be shared freely
+ * between threads, and are serializable so that the results of a long learning run can be saved.
+ */
+public final class ExperimentResult implements Serializable
+{
+	private static final long serialVersionUID=1L;
+
+	private final int[] scores;
+	private final long ticksPlayed;
+	private final double mean,stdDev;
+
+	public ExperimentResult(int[] scores,long ticksPlayed)
+	{
+		this.scores=Arrays.copyOf(scores,scores.length);
+		this.ticksPlayed=ticksPlayed;
+
+		double sum=0;
+
+		for(int i=0;i<scores.length;i++)
+			sum+=scores[i];
+
+		this.mean=scores.length>0 ? sum/scores.length : 0;
+
+		double squares=0;
+
+		for(int i=0;i<scores.length;i++)
+			squares+=(scores[i]-mean)*(scores[i]-mean);
+
+		//sample standard deviation (n-1); undefined for a single game, reported as 0
+		this.stdDev=scores.length>1 ? Math.sqrt(squares/(scores.length-1)) : 0;
+	}
+
+	//Number of games played
+	public int getNumGames()
+	{
+		return scores.length;
+	}
+
+	//Score obtained in each game, in the order the games were played
+	public int[] getScores()
+	{
+		return Arrays.copyOf(scores,scores.length);
+	}
+
+	//Score obtained in the game specified
+	public int getScore(int game)
+	{
+		return scores[game];
+	}
+
+	//Average score over all games
+	public double getMeanScore()
+	{
+		return mean;
+	}
+
+	//Sample standard deviation of the scores
+	public double getStdDev()
+	{
+		return stdDev;
+	}
+
+	//Standard error of the mean score
+	public double getStdError()
+	{
+		return scores.length>0 ? stdDev/Math.sqrt(scores.length) : 0;
+	}
+
+	//Total number of game ticks simulated across all games
+	public long getTicksPlayed()
+	{
+		return ticksPlayed;
+	}
+
+	public String toString()
+	{
+		return "games: "+scores.length+"\tmean: "+mean+"\tstd-dev: "+stdDev+"\tticks: "+ticksPlayed;
+	}
+}
@@ -0,0 +1,102 @@
+package game;
+
+/*
+ * Histogram of latencies (in microseconds) with a bounded relative error, in the spirit of HdrHistogram:
+ * values are grouped in buckets whose width doubles with every power of two, each power of two being split
+ * into SUB_BUCKETS linear buckets. Values below 2*SUB_BUCKETS are exact and any other value is known to
+ * within 1/SUB_BUCKETS (about 3%), whatever its magnitude, using less than 2000 counters in total.
+ * Instances are NOT thread-safe (see ControllerStats).
+ */
+public final class LatencyHistogram
+{
+	private static final int SUB_BUCKET_BITS=5;
+	public static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+
+	private final long[] counts=new long[indexOf(Long.MAX_VALUE)+1];
+	private long count,total,min=Long.MAX_VALUE,max;
+
+	//Records one latency, in microseconds (negative values are counted as 0)
+	public void record(long micros)
+	{
+		if(micros<0)
+			micros=0;
+
+		counts[indexOf(micros)]++;
+		count++;
+		total+=micros;
+
+		if(micros<min)
+			min=micros;
+
+		if(micros>max)
+			max=micros;
+	}
+
+	//Number of latencies recorded
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getMin()
+	{
+		return count>0 ? min : 0;
+	}
+
+	public long getMax()
+	{
+		return max;
+	}
+
+	public double getMean()
+	{
+		return count>0 ? (double)total/count : 0;
+	}
+
+	//Smallest recorded value such that the percentage specified of all values are less than or equal to it (to within the bucket width)
+	public long getValueAtPercentile(double percentile)
+	{
+		if(count==0)
+			return 0;
+
+		long rank=Math.max(1,(long)Math.ceil(Math.min(percentile,100)/100*count));
+		long seen=0;
+
+		for(int i=0;i<counts.length;i++)
+		{
+			seen+=counts[i];
+
+			if(seen>=rank)
+				return Math.min(highestValueOf(i),max);
+		}
+
+		return max;
+	}
+
+	//Bucket of a (non-negative) value
+	static int indexOf(long value)
+	{
+		if(value<(SUB_BUCKETS<<1))
+			return (int)value;
+
+		int shift=63-Long.numberOfLeadingZeros(value)-SUB_BUCKET_BITS;
+		return (shift<<SUB_BUCKET_BITS)+(int)(value>>>shift);
+	}
+
+	//Highest value that falls into the bucket specified
+	static long highestValueOf(int index)
+	{
+		if(index<(SUB_BUCKETS<<1))
+			return index;
+
+		int shift=(index>>>SUB_BUCKET_BITS)-1;
+		long sub=index-((long)shift<<SUB_BUCKET_BITS);
+		return ((sub+1)<<shift)-1;
+	}
+
+	public String toString()
+	{
+		return "n: "+count+"\tmean: "+Math.round(getMean())+"us\tp50: "+getValueAtPercentile(50)+"us\tp90: "+getValueAtPercentile(90)
+				+"us\tp99: "+getValueAtPercentile(99)+"us\tp99.9: "+getValueAtPercentile(99.9)+"us\tmax: "+max+"us";
+	}
+}
@@ -0,0 +1,155 @@
+package game;
+
+import game.core.Game;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * A controller of a timed game (see Exec.runGameTimed(-)) that computes its moves on a pool of threads
+ * shared by all timed games, rather than on a thread of its own. The pool has one thread per core (at
+ * least two, so that Ms Pac-Man and the ghosts of a game can think at the same time): many timed games
+ * can run at once without as many OS threads, controllers simply queue for a thread when all are busy.
+ *
+ * Each tick, the game hands the controller a request (a latch to count down, a copy of the game taken
+ * on the game's thread and the time the move is due): the controller never reads the live game, which
+ * keeps advancing (and drawing random numbers) while it thinks. If the controller is still busy with an
+ * earlier request, the latest request is kept and served as soon as it is done, so no request is ever
+ * lost; intermediate ones are skipped. The timing of every request is recorded in the controller's
+ * ControllerStats.
+ */
+public abstract class ScheduledController implements Runnable
+{
+	private static final ExecutorService pool=Executors.newFixedThreadPool(Math.max(2,Runtime.getRuntime().availableProcessors()),new ThreadFactory()
+	{
+		private final AtomicInteger count=new AtomicInteger();
+
+		public Thread newThread(Runnable r)
+		{
+			Thread thread=new Thread(r,"controller-"+count.getAndIncrement());
+			thread.setDaemon(true);		//the pool never keeps the JVM alive
+			return thread;
+		}
+	});
+
+	private final ControllerStats stats;
+	private boolean alive=true;
+	private boolean busy;
+	private CountDownLatch current,pending;
+	private Game currentGame,pendingGame;
+	private long currentDue,pendingDue;
+	private long currentRequested,pendingRequested;	//System.nanoTime() when the request was made
+
+	//The statistics are named after the class of the controller wrapped
+	protected ScheduledController(Object controller)
+	{
+		String name=controller.getClass().getSimpleName();
+		stats=new ControllerStats(name.length()>0 ? name : controller.getClass().getName());
+	}
+
+	//Computes the move(s) for the copy of the game supplied, due at the time specified, and hands them to the game
+	protected abstract void act(Game game,long timeDue);
+
+	//Asks for a move in the game supplied (a copy the controller may keep), due at the time specified; the latch is
+	//counted down once the move is set
+	public synchronized void alert(CountDownLatch request,Game game,long due)
+	{
+		if(!alive)
+			return;
+
+		stats.recordRequest();
+
+		if(busy)
+		{
+			if(pending!=null)
+				stats.recordSkippedRequest();
+
+			pending=request;
+			pendingGame=game;
+			pendingDue=due;
+			pendingRequested=System.nanoTime();
+		}
+		else
+		{
+			busy=true;
+			current=request;
+			currentGame=game;
+			currentDue=due;
+			currentRequested=System.nanoTime();
+			pool.execute(this);
+		}
+	}
+
+	//Stops serving requests (a move being computed is still handed to the game)
+	public synchronized void kill()
+	{
+		alive=false;
+		pending=null;
+		pendingGame=null;
+	}
+
+	//The game counts a tick played without a reply to that tick's request
+	void recordStaleMove()
+	{
+		stats.recordStaleMove();
+	}
+
+	//Timing statistics of this controller so far
+	public ControllerStats getStats()
+	{
+		return stats;
+	}
+
+	public void run()
+	{
+		while(true)
+		{
+			CountDownLatch done;
+			Game game;
+			long due,requested;
+
+			synchronized(this)
+			{
+				done=current;
+				game=currentGame;
+				due=currentDue;
+				requested=currentRequested;
+			}
+
+			try
+			{
+				act(game,due);
+			}
+			catch(RuntimeException e)
+			{
+				e.printStackTrace();	//the previous move is kept
+			}
+			finally
+			{
+				stats.recordReply(System.nanoTime()-requested,System.currentTimeMillis()>due);
+				done.countDown();
+			}
+
+			synchronized(this)
+			{
+				if(pending==null)
+				{
+					busy=false;
+					current=null;
+					currentGame=null;
+					return;
+				}
+
+				current=pending;
+				currentGame=pendingGame;
+				currentDue=pendingDue;
+				currentRequested=pendingRequested;
+				pending=null;
+				pendingGame=null;
+			}
+		}
+	}
+}
@@ -0,0 +1,430 @@
+package game;
+
+import game.controllers.GhostController;
+import game.controllers.GhostControllerFactory;
+import game.controllers.PacManController;
+import game.controllers.PacManControllerFactory;
+import game.controllers.PacmanControllerApprenant;
+import game.controllers.examples.AttractRepelGhosts;
+import game.controllers.examples.LearningController;
+import game.controllers.examples.Legacy2TheReckoning;
+import game.controllers.examples.NearestPillPacMan;
+import game.controllers.examples.RandomGhosts;
+import game.controllers.examples.RandomPacMan;
+import game.core.GameRandom;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/*
+ * Round-robin tournament: every Ms Pac-Man controller plays a number of games against every ghost
+ * controller, the games being spread over a pool of threads (non-visual, no time limit, as in
+ * Exec.evaluate(-)). Game k of every pairing is played with the same seed, so all controllers face
+ * the same games. Each result is appended to a CSV file as soon as the game is over:
+ *
+ *   pacman,ghosts,game,seed,score,ticks
+ *
+ * If the tournament is interrupted, running it again on the same file only plays the games missing
+ * from it (a line cut short by the interruption is removed and its game played again). The results
+ * table gives, for every pairing, the mean score with a 95% confidence interval.
+ *
+ * Usage: java game.Tournament [games per pairing] [results file] [seed] [threads]
+ */
+public class Tournament
+{
+	public static final String HEADER="pacman,ghosts,game,seed,score,ticks";
+	public static final double Z_95=1.96;		//half-width of a 95% confidence interval, in standard errors
+
+	private final List<PacManControllerFactory> pacMen;
+	private final List<GhostControllerFactory> ghosts;
+	private final int gamesPerPairing;
+	private final long[] gameSeeds,controllerSeeds;
+	private final int[][][] scores;			//[pacman][ghosts][game]
+	private final long[][][] ticks;
+	private final boolean[][][] played;
+	private Writer out;
+
+	public Tournament(List<PacManControllerFactory> pacMen,List<GhostControllerFactory> ghosts,int gamesPerPairing,long seed)
+	{
+		for(PacManControllerFactory pacMan : pacMen)
+			checkName(pacMan.getName());
+
+		for(GhostControllerFactory ghost : ghosts)
+			checkName(ghost.getName());
+
+		this.pacMen=new ArrayList<PacManControllerFactory>(pacMen);
+		this.ghosts=new ArrayList<GhostControllerFactory>(ghosts);
+		this.gamesPerPairing=gamesPerPairing;
+
+		GameRandom random=new GameRandom(seed);
+		gameSeeds=new long[gamesPerPairing];
+		controllerSeeds=new long[gamesPerPairing];
+
+		for(int k=0;k<gamesPerPairing;k++)
+		{
+			gameSeeds[k]=random.nextLong();
+			controllerSeeds[k]=random.nextLong();
+		}
+
+		scores=new int[pacMen.size()][ghosts.size()][gamesPerPairing];
+		ticks=new long[pacMen.size()][ghosts.size()][gamesPerPairing];
+		played=new boolean[pacMen.size()][ghosts.size()][gamesPerPairing];
+	}
+
+	private static void checkName(String name)
+	{
+		if(name.indexOf(',')>=0 || name.indexOf('\n')>=0 || name.indexOf('\r')>=0)
+			throw new IllegalArgumentException("controller names cannot contain commas or line breaks: "+name);
+	}
+
+	//Plays every game missing from the results file on 'numThreads' threads, appending each result to the file as soon as it is known; returns the number of games played
+	public int run(File results,int numThreads) throws IOException
+	{
+		boolean exists=results.exists() && results.length()>0;
+
+		if(exists)
+		{
+			load(results);
+
+			if(!endsWithNewLine(results))
+			{
+				dropPartialLine(results);		//the previous run was interrupted in the middle of a line
+				exists=results.length()>0;
+			}
+		}
+
+		List<Callable<Void>> games=new ArrayList<Callable<Void>>();
+		final Exec exec=new Exec();		//evaluate(-) is reentrant
+
+		for(int k=0;k<gamesPerPairing;k++)
+			for(int i=0;i<pacMen.size();i++)
+				for(int j=0;j<ghosts.size();j++)
+					if(!played[i][j][k])
+					{
+						final int pacMan=i,ghost=j,game=k;
+
+						games.add(new Callable<Void>()
+						{
+							public Void call() throws IOException
+							{
+								PacManController pacManController=pacMen.get(pacMan).create(controllerSeeds[game]);
+								GhostController ghostController=ghosts.get(ghost).create(controllerSeeds[game]);
+								ExperimentResult result=exec.evaluate(pacManController,ghostController,1,gameSeeds[game]);
+								record(pacMan,ghost,game,result.getScore(0),result.getTicksPlayed());
+								return null;
+							}
+						});
+					}
+
+		if(games.isEmpty())
+			return 0;
+
+		out=new BufferedWriter(new OutputStreamWriter(new FileOutputStream(results,true),"UTF-8"));
+		ExecutorService pool=Executors.newFixedThreadPool(numThreads,new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread=new Thread(r,"tournament");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try
+		{
+			if(!exists)
+				out.write(HEADER+"\n");
+
+			out.flush();
+
+			List<Future<Void>> futures=new ArrayList<Future<Void>>(games.size());
+
+			for(Callable<Void> game : games)
+				futures.add(pool.submit(game));
+
+			try
+			{
+				for(Future<Void> future : futures)
+					future.get();
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("tournament interrupted",e);
+			}
+			catch(ExecutionException e)
+			{
+				if(e.getCause() instanceof IOException)
+					throw (IOException)e.getCause();
+
+				throw new IllegalStateException("a game of the tournament failed",e.getCause());
+			}
+
+			return games.size();
+		}
+		finally
+		{
+			pool.shutdownNow();
+
+			synchronized(this)
+			{
+				out.close();
+				out=null;
+			}
+		}
+	}
+
+	//Stores the result of a game and appends it to the results file
+	private synchronized void record(int pacMan,int ghost,int game,int score,long gameTicks) throws IOException
+	{
+		scores[pacMan][ghost][game]=score;
+		ticks[pacMan][ghost][game]=gameTicks;
+		played[pacMan][ghost][game]=true;
+
+		out.write(pacMen.get(pacMan).getName()+","+ghosts.get(ghost).getName()+","+game+","+gameSeeds[game]+","+score+","+gameTicks+"\n");
+		out.flush();
+	}
+
+	//Reads the results of an earlier run; lines of controllers or games not in this tournament are ignored, as is a last
+	//line cut short by an interruption (one that does not end with a new line, even if its fields still parse)
+	private void load(File results) throws IOException
+	{
+		boolean complete=endsWithNewLine(results);
+		BufferedReader in=new BufferedReader(new InputStreamReader(new FileInputStream(results),"UTF-8"));
+
+		try
+		{
+			for(String line=in.readLine(),next;line!=null;line=next)
+			{
+				next=in.readLine();
+
+				if(next==null && !complete)
+					break;
+
+				String[] fields=line.split(",");
+
+				if(fields.length!=6 || line.equals(HEADER))
+					continue;
+
+				int pacMan=indexOfPacMan(fields[0]),ghost=indexOfGhost(fields[1]);
+				int game;
+				long seed,gameTicks;
+				int score;
+
+				try
+				{
+					game=Integer.parseInt(fields[2]);
+					seed=Long.parseLong(fields[3]);
+					score=Integer.parseInt(fields[4]);
+					gameTicks=Long.parseLong(fields[5]);
+				}
+				catch(NumberFormatException e)
+				{
+					continue;
+				}
+
+				if(pacMan<0 || ghost<0 || game<0 || game>=gamesPerPairing)
+					continue;
+
+				if(seed!=gameSeeds[game])
+					throw new IOException(results+" was played with another seed (game "+game+")");
+
+				scores[pacMan][ghost][game]=score;
+				ticks[pacMan][ghost][game]=gameTicks;
+				played[pacMan][ghost][game]=true;
+			}
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private static boolean endsWithNewLine(File file) throws IOException
+	{
+		RandomAccessFile raf=new RandomAccessFile(file,"r");
+
+		try
+		{
+			raf.seek(raf.length()-1);
+			return raf.read()=='\n';
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	//Removes the last line of the file, which does not end with a new line
+	private static void dropPartialLine(File file) throws IOException
+	{
+		RandomAccessFile raf=new RandomAccessFile(file,"rw");
+
+		try
+		{
+			long length=raf.length();
+
+			while(length>0)
+			{
+				raf.seek(length-1);
+
+				if(raf.read()=='\n')
+					break;
+
+				length--;
+			}
+
+			raf.setLength(length);
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	private int indexOfPacMan(String name)
+	{
+		for(int i=0;i<pacMen.size();i++)
+			if(pacMen.get(i).getName().equals(name))
+				return i;
+
+		return -1;
+	}
+
+	private int indexOfGhost(String name)
+	{
+		for(int j=0;j<ghosts.size();j++)
+			if(ghosts.get(j).getName().equals(name))
+				return j;
+
+		return -1;
+	}
+
+	//Results of the games of a pairing played so far, in game order
+	public synchronized ExperimentResult getResult(int pacMan,int ghost)
+	{
+		int[] pairingScores=new int[gamesPerPairing];
+		int numGames=0;
+		long pairingTicks=0;
+
+		for(int k=0;k<gamesPerPairing;k++)
+			if(played[pacMan][ghost][k])
+			{
+				pairingScores[numGames++]=scores[pacMan][ghost][k];
+				pairingTicks+=ticks[pacMan][ghost][k];
+			}
+
+		return new ExperimentResult(Arrays.copyOf(pairingScores,numGames),pairingTicks);
+	}
+
+	//Results table: one row per Ms Pac-Man controller, one column per ghost controller, each cell giving the mean score, the 95% confidence interval and the number of games
+	public String toString()
+	{
+		StringBuilder table=new StringBuilder(String.format("%-28s",""));
+
+		for(GhostControllerFactory ghost : ghosts)
+			table.append(String.format("%28s",ghost.getName()));
+
+		table.append("\n");
+
+		for(int i=0;i<pacMen.size();i++)
+		{
+			table.append(String.format("%-28s",pacMen.get(i).getName()));
+
+			for(int j=0;j<ghosts.size();j++)
+			{
+				ExperimentResult result=getResult(i,j);
+				table.append(String.format("%28s",String.format("%.0f +/- %.0f (%d)",result.getMeanScore(),Z_95*result.getStdError(),result.getNumGames())));
+			}
+
+			table.append("\n");
+		}
+
+		return table.toString();
+	}
+
+	public static void main(String[] args)
+	{
+		int gamesPerPairing=args.length>0 ? Integer.parseInt(args[0]) : 20;
+		File results=new File(args.length>1 ? args[1] : "tournament.csv");
+		long seed=args.length>2 ? Long.parseLong(args[2]) : 0;
+		int numThreads=args.length>3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+		//chromosome of PacmanControllerApprenant, as in Exec.main(-)
+		final double[] chromosome={0.021928292,0.001017273,0.00916914,0,0.132778877,0.941340165,0.405468066,0.007136159,0.099604288,2.82E-04,0,0,0};
+		//chromosome of LearningController (see OurGeneticAlgorithm): even propensities, path distance
+		final double[] ghostChromosome={0.5,0.5,0.5,0.5,0};
+
+		List<PacManControllerFactory> pacMen=new ArrayList<PacManControllerFactory>();
+		pacMen.add(new PacManControllerFactory()
+		{
+			public String getName(){return "PacmanControllerApprenant";}
+			public PacManController create(long seed){return new PacmanControllerApprenant(chromosome,new Random(seed));}
+		});
+		pacMen.add(new PacManControllerFactory()
+		{
+			public String getName(){return "NearestPillPacMan";}
+			public PacManController create(long seed){return new NearestPillPacMan();}
+		});
+		pacMen.add(new PacManControllerFactory()
+		{
+			public String getName(){return "RandomPacMan";}
+			public PacManController create(long seed){return new RandomPacMan();}
+		});
+
+		List<GhostControllerFactory> ghosts=new ArrayList<GhostControllerFactory>();
+		ghosts.add(new GhostControllerFactory()
+		{
+			public String getName(){return "RandomGhosts";}
+			public GhostController create(long seed){return new RandomGhosts();}
+		});
+		ghosts.add(new GhostControllerFactory()
+		{
+			public String getName(){return "Legacy2TheReckoning";}
+			public GhostController create(long seed){return new Legacy2TheReckoning();}
+		});
+		ghosts.add(new GhostControllerFactory()
+		{
+			public String getName(){return "AttractRepelGhosts";}
+			public GhostController create(long seed){return new AttractRepelGhosts(true);}
+		});
+		ghosts.add(new GhostControllerFactory()
+		{
+			public String getName(){return "LearningController";}
+			public GhostController create(long seed){return new LearningController(ghostChromosome);}
+		});
+
+		Tournament tournament=new Tournament(pacMen,ghosts,gamesPerPairing,seed);
+
+		try
+		{
+			long start=System.currentTimeMillis();
+			int numGames=tournament.run(results,numThreads);
+			System.out.println(numGames+" games played in "+(System.currentTimeMillis()-start)+" ms, results in "+results);
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not run the tournament: "+e.getMessage());
+		}
+
+		System.out.print(tournament);
+	}
+}
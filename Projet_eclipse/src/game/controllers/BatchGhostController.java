@@ -0,0 +1,14 @@
+package game.controllers;
+
+import game.core.BatchGame;
+
+/*
+ * Interface for ghost controllers that play a whole batch of games at once (see BatchGame and
+ * Exec.evaluateBatch(-)). getActions(-) stores the directions of the ghosts of game i in directions[i]
+ * for every game still running (null leaves the ghosts going their current way); the entries of games
+ * that are over are ignored. BatchGhostAdapter turns ordinary GhostControllers into a batch controller.
+ */
+public interface BatchGhostController
+{
+	public void getActions(BatchGame batch,long timeDue,int[][] directions);
+}
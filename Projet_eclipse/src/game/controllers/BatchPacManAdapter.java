@@ -0,0 +1,36 @@
+package game.controllers;
+
+import game.core.BatchGame;
+
+/*
+ * Plays a batch of games with ordinary PacManControllers: one controller per game (controllers that keep
+ * state between ticks must not be shared), or the same controller for all games if it is stateless.
+ * Every game is copied into a G to be handed to its controller (see BatchGame.select(-)), so this is
+ * slower than Exec.evaluate(-): it plays the same games, e.g., to check a batch controller against them.
+ */
+public class BatchPacManAdapter implements BatchPacManController
+{
+	private final PacManController[] controllers;
+	
+	//One controller per game of the batch
+	public BatchPacManAdapter(PacManController[] controllers)
+	{
+		this.controllers=controllers;
+	}
+	
+	//The same (stateless) controller for every game of a batch of the size specified
+	public BatchPacManAdapter(PacManController controller,int numGames)
+	{
+		controllers=new PacManController[numGames];
+		
+		for(int i=0;i<numGames;i++)
+			controllers[i]=controller;
+	}
+	
+	public void getActions(BatchGame batch,long timeDue,int[] directions)
+	{
+		for(int i=0;i<directions.length;i++)
+			if(!batch.gameOver(i))
+				directions[i]=controllers[i].getAction(batch.select(i),timeDue);
+	}
+}
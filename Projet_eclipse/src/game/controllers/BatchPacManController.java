@@ -0,0 +1,14 @@
+package game.controllers;
+
+import game.core.BatchGame;
+
+/*
+ * Interface for Ms Pac-Man controllers that play a whole batch of games at once (see BatchGame and
+ * Exec.evaluateBatch(-)). getActions(-) fills in the direction to be taken in every game of the batch
+ * that is still running; the entries of games that are over are ignored. BatchPacManAdapter turns
+ * ordinary PacManControllers into a batch controller.
+ */
+public interface BatchPacManController
+{
+	public void getActions(BatchGame batch,long timeDue,int[] directions);
+}
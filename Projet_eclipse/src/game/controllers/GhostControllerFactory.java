@@ -0,0 +1,14 @@
+package game.controllers;
+
+/*
+ * Creates fresh ghost controllers for the games of a tournament (see game.Tournament): every game gets
+ * its own controller, so controllers that keep state between ticks are never shared between games.
+ */
+public interface GhostControllerFactory
+{
+	//Name of the controller in the results (must not contain commas or line breaks)
+	public String getName();
+	
+	//A new controller; the seed is meant for any random numbers the controller draws from its own generator
+	public GhostController create(long seed);
+}
@@ -0,0 +1,14 @@
+package game.controllers;
+
+/*
+ * Creates fresh Ms Pac-Man controllers for the games of a tournament (see game.Tournament): every game gets
+ * its own controller, so controllers that keep state between ticks are never shared between games.
+ */
+public interface PacManControllerFactory
+{
+	//Name of the controller in the results (must not contain commas or line breaks)
+	public String getName();
+	
+	//A new controller; the seed is meant for any random numbers the controller draws from its own generator
+	public PacManController create(long seed);
+}
@@ -21,21 +21,44 @@ public final class PacmanControllerApprenant implements PacManController {
 	public static double distance_max;
 	// Tableau des gènes de l'individu au commandes
 	private double[] genes;
-	// Générateur de hasard
-	private static Random rand = new Random();
+	// Générateur de hasard, propre à chaque contrôleur pour pouvoir en faire
+	// tourner plusieurs en parallèle de manière reproductible
+	private Random rand;
 	// Type de mesure que l'on utilisera ici
 	private DM measure = DM.PATH;
 	// Définis quel fantome prendre
 	private static final int MANGEABLE = 0;
 	private static final int AGRESSIF = 1;
 
+	// Tampons réutilisés d'un appel de getAction à l'autre : le contrôleur
+	// n'alloue ainsi rien à chaque tick (une instance = une partie à la fois)
+	private final double[] propensions = new double[4];
+	private final int[] fantomesProches = new int[2];
+	private final int[] trucsMangeablesProches = new int[2];
+	private final int[] fantomesMangeables = new int[4];
+	private final int[] fantomesAgressifs = new int[4];
+	private final int[] positionsFantomes = new int[4];
+	private final int[] directionsPossibles = new int[4];
+
 	/**
 	 * Constructeur du controleur de pacman
 	 * 
 	 * @param chromosome
 	 */
 	public PacmanControllerApprenant(double[] chromosome) {
+		this(chromosome, new Random());
+	}
+
+	/**
+	 * Constructeur du controleur de pacman utilisant le générateur de hasard
+	 * fourni (permet de rejouer les mêmes décisions à partir d'une graine)
+	 * 
+	 * @param chromosome
+	 * @param rand
+	 */
+	public PacmanControllerApprenant(double[] chromosome, Random rand) {
 		this.genes = chromosome;
+		this.rand = rand;
 	}
 
 	/**
@@ -50,20 +73,21 @@ public final class PacmanControllerApprenant implements PacManController {
 		// Propension du fantome à aller dans chaque direction
 		// Ces propensions ont une valeur initiale mais seront impactée par
 		// toutes les autres propensions si jeur jet de hasard réussi
-		double[] propensions = {
-				genes[NotreAlgorithmeGenetique.Genes.PROPENSION_HAUT.ordinal()],
-				genes[NotreAlgorithmeGenetique.Genes.PROPENSION_DROITE
-						.ordinal()],
-				genes[NotreAlgorithmeGenetique.Genes.PROPENSION_BAS.ordinal()],
-				genes[NotreAlgorithmeGenetique.Genes.PROPENSION_GAUCHE
-						.ordinal()] };
+		propensions[G.UP] = genes[NotreAlgorithmeGenetique.Genes.PROPENSION_HAUT
+				.ordinal()];
+		propensions[G.RIGHT] = genes[NotreAlgorithmeGenetique.Genes.PROPENSION_DROITE
+				.ordinal()];
+		propensions[G.DOWN] = genes[NotreAlgorithmeGenetique.Genes.PROPENSION_BAS
+				.ordinal()];
+		propensions[G.LEFT] = genes[NotreAlgorithmeGenetique.Genes.PROPENSION_GAUCHE
+				.ordinal()];
 
 		// Position du pacman
 		int positionPacman = game.getCurPacManLoc();
 		// Pastille la plus proche
 		int pastilleProche = getPastilleProche(game, positionPacman);
 		// Fantômes les plus proches (MANGEABLE ou AGRESSIF)
-		int[] fantomesProches = getFantomesLesPlusProches(game, positionPacman);
+		getFantomesLesPlusProches(game, positionPacman);
 		// Truc (fantôme ou pastille) mangeable le plus proche
 		int trucMangeableProche = getTrucMangeableProche(game, positionPacman,
 				pastilleProche, fantomesProches[MANGEABLE]);
@@ -176,38 +200,39 @@ public final class PacmanControllerApprenant implements PacManController {
 		 * Recherche des plus proches éléments (pill, powerPill, edibleGhost,
 		 * agressiveGhost)
 		 */
-		int[] pastillesNormales = game.getPillIndicesActive();
-		pastillesNormales = enleveNeg(pastillesNormales);
 		// Si la distance maximale dans le labyrinthe n'et pas initialisée, on
 		// l'initialise ici
-		if (distance_max < 0)
+		if (distance_max < 0) {
+			int[] pastillesNormales = game.getPillIndicesActive();
 			distance_max = game.getPathDistance(pastillesNormales[0],
 					pastillesNormales[pastillesNormales.length - 1]);
+		}
 
-		int[] pastillesDePuissance = game.getPowerPillIndicesActive();
-		pastillesDePuissance = enleveNeg(pastillesDePuissance);
-		int[] positionsDesPastilles = new int[pastillesNormales.length
-				+ pastillesDePuissance.length];
-		// On ajoute les pastilles à la liste des cibles
-		for (int i = 0; i < pastillesNormales.length; i++)
-			positionsDesPastilles[i] = pastillesNormales[i];
-		for (int i = 0; i < pastillesDePuissance.length; i++)
-			positionsDesPastilles[pastillesNormales.length + i] = pastillesDePuissance[i];
+		// Pastille normale et pastille de puissance les plus proches, données
+		// par l'index des pastilles du jeu (sans parcourir toutes les
+		// pastilles)
+		int pastilleNormale = game.getNearestActivePill(positionPacman);
+		int pastilleDePuissance = game
+				.getNearestActivePowerPill(positionPacman);
 
-		// Pillule la plus proche
-		return game.getTarget(positionPacman, positionsDesPastilles, true,
-				DM.PATH);
+		// Pillule la plus proche (la pastille normale en cas d'égalité)
+		if (pastilleNormale == -1)
+			return pastilleDePuissance;
+		if (pastilleDePuissance != -1
+				&& game.getPathDistance(positionPacman, pastilleDePuissance) < game
+						.getPathDistance(positionPacman, pastilleNormale))
+			return pastilleDePuissance;
+		return pastilleNormale;
 	}
 
 	/**
-	 * Recherche le fantôme mangeable et le fantôme agressif le plus proches
+	 * Recherche le fantôme mangeable et le fantôme agressif le plus proches et
+	 * les range dans fantomesProches
 	 * 
 	 * @param game
 	 * @param positionPacman
-	 * @return fantômes les plus proches (agressif ou mangeable)
 	 */
-	private int[] getFantomesLesPlusProches(Game game, int positionPacman) {
-		int[] positionsFantomes = new int[4];
+	private void getFantomesLesPlusProches(Game game, int positionPacman) {
 		int nombreFantomesMangeables = 0;
 		for (int i = 0; i < 4; i++) {
 			positionsFantomes[i] = game.getCurGhostLoc(i);
@@ -217,25 +242,23 @@ public final class PacmanControllerApprenant implements PacManController {
 
 		// On enlève des positions des fantomes, les positions négatives
 		// (fantome dans le repère)
-		positionsFantomes = enleveNeg(positionsFantomes);
+		enleveNeg(positionsFantomes, 4);
+		int nombreMangeables = nombreFantomesMangeables;
 		int nombreFantomesagressifs = 4 - nombreFantomesMangeables;
-		int[] fantomesMangeables = new int[nombreFantomesMangeables];
-		int[] fantomesagressifs = new int[nombreFantomesagressifs];
+		int nombreAgressifs = nombreFantomesagressifs;
 		// On répartit les fantomes entre les fantomes mangeables et agressifs
 		for (int i = 0; i < 4; i++) {
 			if (game.isEdible(i))
 				fantomesMangeables[--nombreFantomesMangeables] = positionsFantomes[i];
 			else
-				fantomesagressifs[--nombreFantomesagressifs] = positionsFantomes[i];
+				fantomesAgressifs[--nombreFantomesagressifs] = positionsFantomes[i];
 		}
 		// Fantome mangeable le plus proche
-		int fantomeMangeableProche = game.getTarget(positionPacman,
-				fantomesMangeables, true, measure);
+		fantomesProches[MANGEABLE] = game.getTarget(positionPacman,
+				fantomesMangeables, nombreMangeables, true, measure);
 		// Fantome agressif le plus proche
-		int fantomeagressifProche = game.getTarget(positionPacman,
-				fantomesagressifs, true, measure);
-		int[] fantomesProches = { fantomeMangeableProche, fantomeagressifProche };
-		return fantomesProches;
+		fantomesProches[AGRESSIF] = game.getTarget(positionPacman,
+				fantomesAgressifs, nombreAgressifs, true, measure);
 	}
 
 	/**
@@ -250,7 +273,6 @@ public final class PacmanControllerApprenant implements PacManController {
 	private int getTrucMangeableProche(Game game, int positionPacman,
 			int pastilleProche, int fantomeMangeableProche) {
 		// Tableau des trucs mangeables les plus proches (fantomes/pastille)
-		int[] trucsMangeablesProches = new int[2];
 		trucsMangeablesProches[0] = pastilleProche;
 		if (fantomeMangeableProche > 0)
 			trucsMangeablesProches[1] = fantomeMangeableProche;
@@ -262,23 +284,22 @@ public final class PacmanControllerApprenant implements PacManController {
 	}
 
 	/**
-	 * Fonction qui enlève tous les négatifs d'un tableau donné
+	 * Fonction qui enlève tous les négatifs des premières cases d'un tableau
+	 * donné, en place : les valeurs conservées sont tassées au début du
+	 * tableau, dans leur ordre d'origine
 	 * 
 	 * @param tab
-	 * @return le même tableau, sans ses négatifs
+	 * @param taille
+	 *            nombre de cases utilisées dans tab
+	 * @return le nombre de valeurs conservées
 	 */
-	private int[] enleveNeg(int[] tab) {
-		int[] newTab = new int[tab.length];
+	private int enleveNeg(int[] tab, int taille) {
 		int j = 0;
-		for (int i = 0; i < tab.length; i++) {
+		for (int i = 0; i < taille; i++) {
 			if (tab[i] >= 0)
-				newTab[j++] = tab[i];
-		}
-		int[] output = new int[j];
-		for (int i = 0; i < j; i++) {
-			output[i] = newTab[i];
+				tab[j++] = tab[i];
 		}
-		return output;
+		return j;
 	}
 
 	/**
@@ -288,7 +309,8 @@ public final class PacmanControllerApprenant implements PacManController {
 	 * @return une direction aléatoire
 	 */
 	private int directionAleatoire(Game game) {
-		int[] possibleDirs = game.getPossiblePacManDirs(true);
-		return possibleDirs[rand.nextInt(possibleDirs.length)];
+		int nombreDirections = game.getPossiblePacManDirs(true,
+				directionsPossibles);
+		return directionsPossibles[rand.nextInt(nombreDirections)];
 	}
 }
\ No newline at end of file
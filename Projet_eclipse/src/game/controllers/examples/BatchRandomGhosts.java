@@ -0,0 +1,42 @@
+package game.controllers.examples;
+
+import game.controllers.BatchGhostController;
+import game.core.BatchGame;
+import game.core.Game;
+import game.core.GameRandom;
+
+/*
+ * Same as RandomGhosts for a whole batch of games at once: reads the positions straight from the columns of the batch
+ * (see BatchGame) instead of going through one view per game.
+ */
+public final class BatchRandomGhosts implements BatchGhostController
+{
+	private final GameRandom random;
+	private final int[] possibleDirs=new int[4];
+	
+	public BatchRandomGhosts()
+	{
+		this(GameRandom.newSeed());
+	}
+	
+	public BatchRandomGhosts(long seed)
+	{
+		random=new GameRandom(seed);
+	}
+	
+	public void getActions(BatchGame batch,long timeDue,int[][] directions)
+	{
+		for(int i=0;i<directions.length;i++)
+		{
+			if(batch.gameOver(i))
+				continue;
+			
+			if(directions[i]==null)
+				directions[i]=new int[Game.NUM_GHOSTS];
+			
+			//a random LEGAL action for the ghosts that have a choice, the others keep going
+			for(int j=0;j<Game.NUM_GHOSTS;j++)
+				directions[i][j]=batch.ghostRequiresAction(i,j) ? possibleDirs[random.nextInt(batch.getPossibleGhostDirs(i,j,possibleDirs))] : -1;
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package game.controllers.examples;
+
+import game.controllers.BatchPacManController;
+import game.core.BatchGame;
+import game.core.GameRandom;
+
+/*
+ * Same as RandomNonRevPacMan for a whole batch of games at once: reads the positions straight from the columns of the
+ * batch (see BatchGame) instead of going through one view per game.
+ */
+public final class BatchRandomNonRevPacMan implements BatchPacManController
+{
+	private final GameRandom random;
+	private final int[] directions=new int[4];
+	
+	public BatchRandomNonRevPacMan()
+	{
+		this(GameRandom.newSeed());
+	}
+	
+	public BatchRandomNonRevPacMan(long seed)
+	{
+		random=new GameRandom(seed);
+	}
+	
+	public void getActions(BatchGame batch,long timeDue,int[] actions)
+	{
+		for(int i=0;i<actions.length;i++)
+			if(!batch.gameOver(i))
+				actions[i]=directions[random.nextInt(batch.getPossiblePacManDirs(i,false,directions))];	//no reversals
+	}
+}
@@ -1,12 +1,9 @@
 package game.controllers.examples;
 
 import game.controllers.GhostController;
-import game.core.G;
 import game.core.Game;
 import game.core.Game.DM;
 
-import java.util.Random;
-
 import algorithme_apprentissage.OurGeneticAlgorithm;
 
 
@@ -14,8 +11,6 @@ public class LearningController implements GhostController {
 
 	private double[] chromosome;
 
-	private static Random rand = new Random();
-
 	public LearningController(double[] chromosome) {
 		this.chromosome = chromosome;
 	}
@@ -35,7 +30,7 @@ public class LearningController implements GhostController {
 				// comportement quand mangeable
 
 				double tot = chromosome[OurGeneticAlgorithm.PROPENSION_SUICIDE] + chromosome[OurGeneticAlgorithm.PROPENSION_SURVIE];
-				double slice = tot * rand.nextDouble();
+				double slice = tot * game.getRandom().nextDouble();
 				if (slice < chromosome[OurGeneticAlgorithm.PROPENSION_SUICIDE])
 					directions[i] = game.getNextGhostDir(i, pacloc, true, measure);
 				else
@@ -44,7 +39,7 @@ public class LearningController implements GhostController {
 				// comportement quand non mangeable
 
 				double tot = chromosome[OurGeneticAlgorithm.PROPENSION_FUITE] + chromosome[OurGeneticAlgorithm.PROPENSION_ATTAQUE];
-				double slice = tot * rand.nextDouble();
+				double slice = tot * game.getRandom().nextDouble();
 				if (slice < chromosome[OurGeneticAlgorithm.PROPENSION_FUITE])
 					directions[i] = game.getNextGhostDir(i, pacloc, false, measure);
 				else
@@ -57,7 +52,7 @@ public class LearningController implements GhostController {
 	private int getRandomDir(int whichGhost, Game game) {
 		if (game.ghostRequiresAction(whichGhost)) {
 			int[] possibleDirs = game.getPossibleGhostDirs(whichGhost);
-			return possibleDirs[G.rnd.nextInt(possibleDirs.length)];
+			return possibleDirs[game.getRandom().nextInt(possibleDirs.length)];
 		}
 		return 0;
 	}
@@ -15,7 +15,7 @@ public class Legacy implements GhostController
 			if(game.ghostRequiresAction(i))
 				directions[i]=game.getNextGhostDir(i,game.getCurPacManLoc(),true,dms[i]);	//approach Ms Pac-Man using a different distance measure
 																							//for each ghost; last ghost takes random action
-		directions[3]=Game.rnd.nextInt(4);
+		directions[3]=game.getRandom().nextInt(4);
 		
 		return directions;
 	}
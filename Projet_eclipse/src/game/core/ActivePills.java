@@ -0,0 +1,82 @@
+package game.core;
+
+/*
+ * The pills (or power pills) still present in the current maze, identified by their pill index. They are stored as a
+ * segment of the packed game state (see G.state) starting at 'base': the number of active pills, followed by one pair
+ * of ints per pill slot - the pill index at that position of the dense list of active pills, and the position of the
+ * pill with that index in the list (-1 once eaten):
+ *
+ *   [size][active 0][position of pill 0][active 1][position of pill 1]...
+ *
+ * Eating a pill (swap-remove), checking a pill and counting the active pills are all O(1) and enumerating the active
+ * pills is O(active) instead of a scan over all pills of the maze.
+ * NOTE: the enumeration order is NOT the pill order - it changes as pills are eaten.
+ */
+final class ActivePills
+{
+	private ActivePills(){}
+
+	//Number of ints taken by a segment able to hold 'capacity' pills
+	static int segmentSize(int capacity)
+	{
+		return 1+2*capacity;
+	}
+
+	//Makes the first 'numPills' pills active
+	static void fill(int[] state,int base,int numPills)
+	{
+		state[base]=numPills;
+
+		for(int i=0;i<numPills;i++)
+		{
+			state[base+1+2*i]=i;
+			state[base+2+2*i]=i;
+		}
+	}
+
+	//Whether the pill specified is still there (the pill must exist in the current maze)
+	static boolean contains(int[] state,int base,int pill)
+	{
+		return state[base+2+2*pill]>=0;
+	}
+
+	//Removes the pill specified (the last active pill takes its place); returns the position it occupied, -1 if it was already gone
+	static int remove(int[] state,int base,int pill)
+	{
+		int position=state[base+2+2*pill];
+
+		if(position<0)
+			return -1;
+
+		int size=--state[base];
+		int last=state[base+1+2*size];
+		state[base+1+2*position]=last;
+		state[base+2+2*last]=position;
+		state[base+2+2*pill]=-1;
+
+		return position;
+	}
+
+	//Reverts remove(-): puts the pill back at the position returned by remove(-), which must be the latest removal not yet restored
+	static void restore(int[] state,int base,int pill,int position)
+	{
+		int size=state[base]++;
+		int last=state[base+1+2*position];
+		state[base+1+2*size]=last;
+		state[base+2+2*last]=size;
+		state[base+1+2*position]=pill;
+		state[base+2+2*pill]=position;
+	}
+
+	//Number of active pills
+	static int size(int[] state,int base)
+	{
+		return state[base];
+	}
+
+	//Pill index of the k-th active pill (0<=k<size)
+	static int get(int[] state,int base,int k)
+	{
+		return state[base+1+2*k];
+	}
+}
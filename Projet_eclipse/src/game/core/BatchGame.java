@@ -0,0 +1,602 @@
+package game.core;
+
+import java.util.Arrays;
+
+/*
+ * Plays a batch of independent games in lockstep over columnar arrays. Every field of the state of a game (see G.state) is
+ * stored as one array across the games: pacLoc[game], score[game], ... for the header, ghostLoc[ghost*numGames+game], ...
+ * for the ghosts, and the active pills of all games in the layout of ActivePills, one array per field. advance(-) applies
+ * the rules of the game one step at a time to every game still running (all Ms Pac-Man moves, then all pills eaten, then
+ * all ghost moves, ...), so each step is a tight loop over primitive arrays rather than a call into one G object per game.
+ * The rules are those of G.advanceGame(-) and every game draws from its own random number generator in the same order
+ * as G: game i plays exactly as the i-th game of Exec.evaluate(-) given the same seed and the same moves.
+ *
+ * Batch controllers (see BatchPacManController/BatchGhostController) read the columns directly through the getters
+ * below, which take the game as first argument. Ordinary controllers are handed a game through select(-), which copies
+ * that game into a single G and returns a read-only view of it (with a random number generator split from the game's, as
+ * Exec does): the view shows the game selected last, so it must be used before the next call to select(-) or advance(-).
+ * Not thread-safe: one batch per thread.
+ */
+public final class BatchGame
+{
+	private final int numGames;
+
+	//header of the state of every game: one array per slot of G.state, indexed by game
+	private final int[] maze,level,levelTime,totalTime,score,eatMultiplier,gameOver,pacLoc,pacDir,lives,extraLife;
+	//ghosts: one array per slot, the value for ghost i of game g at [i*numGames+g]
+	private final int[] ghostLoc,ghostDir,edibleTime,lairTime;
+	//active pills and power pills (see ActivePills): number per game, then the active pills of game g at [g*capacity+k]
+	//and the position of pill p in that list (-1 once eaten) at [g*capacity+p]
+	private final int pillCapacity,powerPillCapacity;
+	private final int[] numPills,pills,pillPositions,numPowerPills,powerPills,powerPillPositions;
+	private final GameRandom[] randoms;
+
+	//games still running, in increasing order
+	private final int[] running;
+	private int numRunning;
+
+	//scratch arrays for advance(-)
+	private final boolean[] reverse;
+	private final int[] dirBuffer=new int[4];
+
+	//single game used to hand ordinary controllers the game selected
+	private final G engine=new G();
+	private final ReadOnlyGame view=new ReadOnlyGame(engine);
+	private int selected=-1;
+
+	public BatchGame(int numGames)
+	{
+		this.numGames=numGames;
+
+		engine.init();		//load mazes if not yet loaded
+		engine.state=new int[G.stateSize];
+
+		maze=new int[numGames];
+		level=new int[numGames];
+		levelTime=new int[numGames];
+		totalTime=new int[numGames];
+		score=new int[numGames];
+		eatMultiplier=new int[numGames];
+		gameOver=new int[numGames];
+		pacLoc=new int[numGames];
+		pacDir=new int[numGames];
+		lives=new int[numGames];
+		extraLife=new int[numGames];
+
+		ghostLoc=new int[G.NUM_GHOSTS*numGames];
+		ghostDir=new int[G.NUM_GHOSTS*numGames];
+		edibleTime=new int[G.NUM_GHOSTS*numGames];
+		lairTime=new int[G.NUM_GHOSTS*numGames];
+
+		pillCapacity=(G.powerPillsBase-G.PILLS-1)/2;
+		powerPillCapacity=(G.stateSize-G.powerPillsBase-1)/2;
+		numPills=new int[numGames];
+		pills=new int[numGames*pillCapacity];
+		pillPositions=new int[numGames*pillCapacity];
+		numPowerPills=new int[numGames];
+		powerPills=new int[numGames*powerPillCapacity];
+		powerPillPositions=new int[numGames*powerPillCapacity];
+
+		randoms=new GameRandom[numGames];
+		running=new int[numGames];
+		reverse=new boolean[numGames];
+	}
+
+	//Starts all games; game i is seeded exactly like the i-th game of Exec.evaluate(-) given the same seed
+	public void newGames(long seed)
+	{
+		GameRandom seeds=new GameRandom(seed);
+
+		for(int[] column : new int[][]{maze,level,levelTime,totalTime,score,eatMultiplier,gameOver,pacLoc,pacDir,lives,extraLife})
+			Arrays.fill(column,0);
+
+		for(int g=0;g<numGames;g++)
+		{
+			randoms[g]=new GameRandom(seeds.nextLong());
+			resetPills(g);
+			lives[g]=G.NUM_LIVES;
+			reset(g,false);
+			running[g]=g;
+		}
+
+		numRunning=numGames;
+		selected=-1;
+	}
+
+	/*
+	 * Advances every game still running by one tick. pacManDirs[g] and ghostDirs[g] hold the directions for game g, as
+	 * returned by the controllers (ghostDirs[g] may be null); the entries of games that are over are ignored. As with
+	 * G.advanceGame(-), illegal ghost directions are replaced in ghostDirs[g] by those taken.
+	 */
+	public void advance(int[] pacManDirs,int[][] ghostDirs)
+	{
+		selected=-1;
+
+		movePacMen(pacManDirs);
+		eatPills();
+		eatPowerPills();
+		moveGhosts(ghostDirs);
+
+		for(int r=0;r<numRunning;r++)
+			feast(running[r]);
+
+		for(int i=0;i<G.NUM_GHOSTS;i++)
+		{
+			int base=i*numGames;
+
+			for(int r=0;r<numRunning;r++)
+			{
+				int g=running[r];
+
+				if(lairTime[base+g]>0 && --lairTime[base+g]==0)
+					ghostLoc[base+g]=G.mazes[maze[g]].initialGhostsPosition;
+			}
+		}
+
+		for(int r=0;r<numRunning;r++)
+		{
+			int g=running[r];
+
+			if(extraLife[g]==0 && score[g]>=G.EXTRA_LIFE_SCORE)	//award 1 extra life at 10000 points
+			{
+				extraLife[g]=1;
+				lives[g]++;
+			}
+
+			totalTime[g]++;
+			levelTime[g]++;
+			checkLevelState(g);
+		}
+
+		//drop the games that are over
+		int stillRunning=0;
+
+		for(int r=0;r<numRunning;r++)
+			if(gameOver[running[r]]==0)
+				running[stillRunning++]=running[r];
+
+		numRunning=stillRunning;
+	}
+
+	//See G.updatePacMan(-)
+	private void movePacMen(int[] pacManDirs)
+	{
+		for(int r=0;r<numRunning;r++)
+		{
+			int g=running[r];
+			int[] neighbours=G.mazes[maze[g]].graph[pacLoc[g]].neighbours;
+			int direction=pacManDirs[g];
+			int current=pacDir[g];
+
+			//see G.checkPacManDir(-)
+			if((direction>3 || direction<0 || neighbours[direction]==-1) && (current>3 || current<0 || neighbours[current]==-1))
+				direction=4;
+			else
+			{
+				if(direction<0 || direction>3)
+					direction=current;
+
+				if(neighbours[direction]==-1)
+					if(neighbours[current]!=-1)
+						direction=current;
+					else
+						direction=dirBuffer[randoms[g].nextInt(getPossibleDirs(neighbours,current,true,dirBuffer))];
+			}
+
+			pacDir[g]=direction;
+
+			if(direction>=0 && direction<=3)
+				pacLoc[g]=neighbours[direction];
+		}
+	}
+
+	//See G.eatPill()
+	private void eatPills()
+	{
+		for(int r=0;r<numRunning;r++)
+		{
+			int g=running[r];
+			int pill=G.mazes[maze[g]].graph[pacLoc[g]].pillIndex;
+
+			if(pill>=0 && remove(numPills,pills,pillPositions,pillCapacity,g,pill))
+				score[g]+=G.PILL;
+		}
+	}
+
+	//See G.eatPowerPill(): sets reverse[g] if the ghosts of game g reverse
+	private void eatPowerPills()
+	{
+		for(int r=0;r<numRunning;r++)
+		{
+			int g=running[r];
+			int powerPill=G.mazes[maze[g]].graph[pacLoc[g]].powerPillIndex;
+
+			if(powerPill>=0 && remove(numPowerPills,powerPills,powerPillPositions,powerPillCapacity,g,powerPill))
+			{
+				score[g]+=G.POWER_PILL;
+				eatMultiplier[g]=1;
+
+				//only ghosts outside the lair turn edible
+				int newEdibleTime=(int)(G.EDIBLE_TIME*(Math.pow(G.EDIBLE_TIME_REDUCTION,level[g])));
+
+				for(int i=0;i<G.NUM_GHOSTS;i++)
+					edibleTime[i*numGames+g]=lairTime[i*numGames+g]==0 ? newEdibleTime : 0;
+
+				reverse[g]=true;
+			}
+			else
+				reverse[g]=levelTime[g]>1 && randoms[g].nextDouble()<G.GHOST_REVERSAL;	//random ghost reversal
+		}
+	}
+
+	//See G.updateGhosts(-): one ghost at a time across the games (the ghosts of a game move independently of one another)
+	private void moveGhosts(int[][] ghostDirs)
+	{
+		for(int i=0;i<G.NUM_GHOSTS;i++)
+		{
+			int base=i*numGames;
+
+			for(int r=0;r<numRunning;r++)
+			{
+				int g=running[r];
+				int[] directions=ghostDirs[g];
+				int k=base+g;
+
+				if(lairTime[k]!=0 || (directions!=null && i>=directions.length))
+					continue;
+
+				int[] neighbours=G.mazes[maze[g]].graph[ghostLoc[k]].neighbours;
+
+				if(reverse[g])
+				{
+					ghostDir[k]=getReverse(ghostDir[k]);
+					ghostLoc[k]=neighbours[ghostDir[k]];
+				}
+				else if(edibleTime[k]==0 || edibleTime[k]%G.GHOST_SPEED_REDUCTION!=0)
+				{
+					int current=ghostDir[k];
+					int direction=directions!=null ? directions[i] : current;
+
+					//see G.checkGhostDir(-): the ghost may not reverse
+					if(direction<0 || direction>3)
+						direction=current;
+
+					if(neighbours[direction]==-1 || direction==getReverse(current))
+					{
+						if(neighbours[current]!=-1)
+							direction=current;
+						else
+							direction=dirBuffer[randoms[g].nextInt(getPossibleDirs(neighbours,current,false,dirBuffer))];
+					}
+
+					if(directions!=null)
+						directions[i]=direction;
+
+					ghostDir[k]=direction;
+					ghostLoc[k]=neighbours[direction];
+				}
+			}
+		}
+	}
+
+	//See G.feast()
+	private void feast(int g)
+	{
+		G.Maze m=G.mazes[maze[g]];
+
+		for(int i=0;i<G.NUM_GHOSTS;i++)
+		{
+			int k=i*numGames+g;
+			int distance=m.getDistance(pacLoc[g],ghostLoc[k]);
+
+			if(distance<=G.EAT_DISTANCE && distance!=-1)
+			{
+				if(edibleTime[k]>0)									//pac-man eats ghost
+				{
+					score[g]+=G.GHOST_EAT_SCORE*eatMultiplier[g];
+					eatMultiplier[g]*=2;
+					edibleTime[k]=0;
+					lairTime[k]=(int)(G.COMMON_LAIR_TIME*(Math.pow(G.LAIR_REDUCTION,level[g])));
+					ghostLoc[k]=m.lairPosition;
+					ghostDir[k]=G.INITIAL_GHOST_DIRS[i];
+				}
+				else												//ghost eats pac-man
+				{
+					if(--lives[g]<=0)
+					{
+						gameOver[g]=1;
+						return;
+					}
+					else
+						reset(g,false);
+				}
+			}
+		}
+
+		for(int i=0;i<G.NUM_GHOSTS;i++)
+			if(edibleTime[i*numGames+g]>0)
+				edibleTime[i*numGames+g]--;
+	}
+
+	//See G.checkLevelState()
+	private void checkLevelState(int g)
+	{
+		if((numPills[g]==0 && numPowerPills[g]==0) || levelTime[g]>=G.LEVEL_LIMIT)
+		{
+			//award any remaining pills to Ms Pac-Man
+			score[g]+=G.PILL*numPills[g]+G.POWER_PILL*numPowerPills[g];
+
+			if(level[g]+1==G.MAX_LEVELS)
+				gameOver[g]=1;
+			else
+				reset(g,true);
+		}
+	}
+
+	//See G.reset(-)
+	private void reset(int g,boolean newLevel)
+	{
+		if(newLevel)
+		{
+			maze[g]=(maze[g]+1)%G.NUM_MAZES;
+			level[g]++;
+			levelTime[g]=0;
+			resetPills(g);
+		}
+
+		G.Maze m=G.mazes[maze[g]];
+		pacLoc[g]=m.initialPacPosition;
+		pacDir[g]=G.INITIAL_PAC_DIR;
+
+		for(int i=0;i<G.NUM_GHOSTS;i++)
+		{
+			int k=i*numGames+g;
+			ghostLoc[k]=m.lairPosition;
+			ghostDir[k]=G.INITIAL_GHOST_DIRS[i];
+			edibleTime[k]=0;
+			lairTime[k]=(int)(G.LAIR_TIMES[i]*(Math.pow(G.LAIR_REDUCTION,level[g])));
+		}
+
+		eatMultiplier[g]=1;
+	}
+
+	//Makes all pills and power pills of the current maze of game g active (see ActivePills.fill(-))
+	private void resetPills(int g)
+	{
+		G.Maze m=G.mazes[maze[g]];
+		fill(numPills,pills,pillPositions,pillCapacity,g,m.pillIndices.length);
+		fill(numPowerPills,powerPills,powerPillPositions,powerPillCapacity,g,m.powerPillIndices.length);
+	}
+
+	private static void fill(int[] size,int[] list,int[] positions,int capacity,int g,int numPills)
+	{
+		size[g]=numPills;
+
+		for(int i=0;i<numPills;i++)
+		{
+			list[g*capacity+i]=i;
+			positions[g*capacity+i]=i;
+		}
+	}
+
+	//Removes a pill of game g (the last active pill takes its place, as in ActivePills.remove(-)); false if it was already gone
+	private static boolean remove(int[] size,int[] list,int[] positions,int capacity,int g,int pill)
+	{
+		int base=g*capacity;
+		int position=positions[base+pill];
+
+		if(position<0)
+			return false;
+
+		int last=list[base+(--size[g])];
+		list[base+position]=last;
+		positions[base+last]=position;
+		positions[base+pill]=-1;
+
+		return true;
+	}
+
+	private static int getReverse(int direction)
+	{
+		return direction>=0 && direction<=3 ? (direction+2)&3 : 4;
+	}
+
+	//Fills 'directions' with the directions open from a node (see G.getPossibleDirs(-)); returns their number
+	private static int getPossibleDirs(int[] neighbours,int curDir,boolean includeReverse,int[] directions)
+	{
+		int reverse=(includeReverse || (curDir<0 || curDir>3)) ? -1 : getReverse(curDir);
+		int index=0;
+
+		for(int i=0;i<neighbours.length;i++)
+			if(neighbours[i]!=-1 && i!=reverse)
+				directions[index++]=i;
+
+		return index;
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////  Views for ordinary controllers  ////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	//Returns a read-only view of the game specified, valid until the next call to select(-) or advance(-)
+	public Game select(int game)
+	{
+		if(game!=selected)
+		{
+			int[] state=engine.state;
+			state[G.MAZE]=maze[game];
+			state[G.LEVEL]=level[game];
+			state[G.LEVEL_TIME]=levelTime[game];
+			state[G.TOTAL_TIME]=totalTime[game];
+			state[G.SCORE]=score[game];
+			state[G.GHOST_EAT_MULTIPLIER]=eatMultiplier[game];
+			state[G.GAME_OVER]=gameOver[game];
+			state[G.PAC_LOC]=pacLoc[game];
+			state[G.PAC_DIR]=pacDir[game];
+			state[G.LIVES]=lives[game];
+			state[G.EXTRA_LIFE]=extraLife[game];
+
+			for(int i=0;i<G.NUM_GHOSTS;i++)
+			{
+				int k=i*numGames+game;
+				state[G.GHOST_LOCS+i]=ghostLoc[k];
+				state[G.GHOST_DIRS+i]=ghostDir[k];
+				state[G.GHOST_EDIBLE_TIMES+i]=edibleTime[k];
+				state[G.GHOST_LAIR_TIMES+i]=lairTime[k];
+			}
+
+			G.Maze m=G.mazes[maze[game]];
+			copyPills(state,G.PILLS,numPills,pills,pillPositions,pillCapacity,game,m.pillIndices.length);
+			copyPills(state,G.powerPillsBase,numPowerPills,powerPills,powerPillPositions,powerPillCapacity,game,m.powerPillIndices.length);
+
+			engine.hash=engine.computeHash();
+			engine.random=randoms[game];
+			selected=game;
+		}
+
+		return view.refresh();
+	}
+
+	//Writes the pills of a game in the layout of ActivePills (the active ones, and the positions of the pills of the maze)
+	private static void copyPills(int[] state,int segment,int[] size,int[] list,int[] positions,int capacity,int g,int numPills)
+	{
+		int base=g*capacity;
+		state[segment]=size[g];
+
+		for(int i=0;i<size[g];i++)
+			state[segment+1+2*i]=list[base+i];
+
+		for(int i=0;i<numPills;i++)
+			state[segment+2+2*i]=positions[base+i];
+	}
+
+	/////////////////////////////////////////////////////////////////////////////
+	///////////////////////////  Getter Methods  ////////////////////////////////
+	/////////////////////////////////////////////////////////////////////////////
+
+	//Number of games in the batch
+	public int getNumGames()
+	{
+		return numGames;
+	}
+
+	//Number of games still running
+	public int getNumRunning()
+	{
+		return numRunning;
+	}
+
+	//Whether the game specified is over
+	public boolean gameOver(int game)
+	{
+		return gameOver[game]==1;
+	}
+
+	//Whether all games of the batch are over
+	public boolean allOver()
+	{
+		return numRunning==0;
+	}
+
+	public int getScore(int game)
+	{
+		return score[game];
+	}
+
+	public int getTotalTime(int game)
+	{
+		return totalTime[game];
+	}
+
+	public int getCurLevel(int game)
+	{
+		return level[game];
+	}
+
+	public int getCurMaze(int game)
+	{
+		return maze[game];
+	}
+
+	public int getCurPacManLoc(int game)
+	{
+		return pacLoc[game];
+	}
+
+	public int getCurPacManDir(int game)
+	{
+		return pacDir[game];
+	}
+
+	public int getCurGhostLoc(int game,int whichGhost)
+	{
+		return ghostLoc[whichGhost*numGames+game];
+	}
+
+	public int getCurGhostDir(int game,int whichGhost)
+	{
+		return ghostDir[whichGhost*numGames+game];
+	}
+
+	public int getEdibleTime(int game,int whichGhost)
+	{
+		return edibleTime[whichGhost*numGames+game];
+	}
+
+	public int getLairTime(int game,int whichGhost)
+	{
+		return lairTime[whichGhost*numGames+game];
+	}
+
+	public int getLivesRemaining(int game)
+	{
+		return lives[game];
+	}
+
+	public int getNumActivePills(int game)
+	{
+		return numPills[game];
+	}
+
+	public int getNumActivePowerPills(int game)
+	{
+		return numPowerPills[game];
+	}
+
+	//Neighbour of a node of the current maze of the game in the direction specified (the node itself for neutral), see G.getNeighbour(-)
+	public int getNeighbour(int game,int nodeIndex,int direction)
+	{
+		if(direction<0 || direction>3)
+			return nodeIndex;
+
+		return G.mazes[maze[game]].graph[nodeIndex].neighbours[direction];
+	}
+
+	//Shortest path distance between two nodes of the current maze of the game, see G.getPathDistance(-)
+	public int getPathDistance(int game,int from,int to)
+	{
+		return G.mazes[maze[game]].getDistance(from,to);
+	}
+
+	//Fills the array supplied (of length 4 at least) with the directions Ms Pac-Man can take; returns their number
+	public int getPossiblePacManDirs(int game,boolean includeReverse,int[] directions)
+	{
+		return getPossibleDirs(G.mazes[maze[game]].graph[pacLoc[game]].neighbours,pacDir[game],includeReverse,directions);
+	}
+
+	//Fills the array supplied (of length 4 at least) with the directions the ghost can take (no reversal); returns their number
+	public int getPossibleGhostDirs(int game,int whichGhost,int[] directions)
+	{
+		int k=whichGhost*numGames+game;
+
+		return getPossibleDirs(G.mazes[maze[game]].graph[ghostLoc[k]].neighbours,ghostDir[k],false,directions);
+	}
+
+	//Whether the ghost has a choice to make (at a junction, and not standing still while edible), see G.ghostRequiresAction(-)
+	public boolean ghostRequiresAction(int game,int whichGhost)
+	{
+		int k=whichGhost*numGames+game;
+
+		return G.mazes[maze[game]].graph[ghostLoc[k]].numNeighbours>2 && (edibleTime[k]==0 || edibleTime[k]%G.GHOST_SPEED_REDUCTION!=0);
+	}
+}
@@ -0,0 +1,262 @@
+package game.core;
+
+import game.controllers.GhostController;
+import game.controllers.PacManController;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/*
+ * Compact binary alternative to the text replays of Replay. Each tick takes 3 bytes: a flag byte followed by the
+ * directions taken by Ms Pac-Man and the four ghosts, 2 bits each (10 bits in 2 bytes). A direction that is not one
+ * of the four moves (Ms Pac-Man standing still) is flagged in the flag byte. At the start of the game and of every
+ * level, a keyframe stores the full packed state of the game (see G.getPackedState()), so that seek(-) can put a
+ * replay game (_RG_) at any tick by restoring the latest keyframe and replaying at most one level from there,
+ * instead of replaying the whole game from the start.
+ *
+ * Layout (big-endian): MAGIC (int), size of the packed state in ints (int), then a keyframe followed by the ticks of
+ * its level, the next keyframe, and so on:
+ *
+ *   keyframe: KEYFRAME (byte), tick (int), state of the random number generator (long), packed state (ints)
+ *   tick:     TICK|flags (byte), directions (short): Ms Pac-Man in bits 8-9, ghost i in bits 6-2i and 7-2i
+ *
+ * The file is flushed after every keyframe, and a file cut short (e.g. by a crash) is read up to its last complete tick.
+ */
+public final class BinaryReplay
+{
+	public static final int MAGIC=0x504d5231;		//"PMR1"
+	public static final String EXTENSION=".pmr";
+
+	private static final int HEADER_SIZE=8;			//magic + size of the packed state
+	private static final byte KEYFRAME=0x01;
+	private static final int TICK=0x80;				//flag byte of a tick: TICK plus one bit per neutral direction
+	private static final int TICK_SIZE=3;
+	private static final int NEUTRAL=4;
+
+	private final ByteBuffer data;
+	private final int stateSize;
+	private final int[] keyframeTicks,keyframeOffsets;
+	private final int numKeyframes,numTicks;
+	private final int[] pacManBuffer=new int[1],ghostsBuffer=new int[G.NUM_GHOSTS];
+
+	//Loads a binary replay and indexes its keyframes
+	public BinaryReplay(String fileName) throws IOException
+	{
+		data=ByteBuffer.wrap(Files.readAllBytes(new File(fileName).toPath()));
+
+		if(data.limit()<HEADER_SIZE || data.getInt(0)!=MAGIC)
+			throw new IOException(fileName+" is not a binary replay");
+
+		stateSize=data.getInt(4);
+		int keyframeSize=1+4+8+4*stateSize;
+
+		int[] ticks=new int[16],offsets=new int[16];
+		int keyframes=0,lastTick=0,offset=HEADER_SIZE;
+
+		while(offset<data.limit())
+		{
+			if(data.get(offset)==KEYFRAME)
+			{
+				if(offset+keyframeSize>data.limit())
+					break;
+
+				if(keyframes==ticks.length)
+				{
+					ticks=Arrays.copyOf(ticks,keyframes*2);
+					offsets=Arrays.copyOf(offsets,keyframes*2);
+				}
+
+				ticks[keyframes]=data.getInt(offset+1);
+				offsets[keyframes++]=offset;
+				lastTick=data.getInt(offset+1);
+				offset+=keyframeSize;
+			}
+			else if((data.get(offset)&TICK)!=0 && offset+TICK_SIZE<=data.limit())
+			{
+				lastTick++;
+				offset+=TICK_SIZE;
+			}
+			else
+				break;
+		}
+
+		if(keyframes==0)
+			throw new IOException(fileName+" has no keyframe");
+
+		keyframeTicks=ticks;
+		keyframeOffsets=offsets;
+		numKeyframes=keyframes;
+		numTicks=lastTick;
+	}
+
+	//Number of ticks recorded
+	public int getNumTicks()
+	{
+		return numTicks;
+	}
+
+	//Ticks at which a level starts (the first one is 0)
+	public int[] getLevelStarts()
+	{
+		return Arrays.copyOf(keyframeTicks,numKeyframes);
+	}
+
+	//Puts the game in the state it was in at the tick specified (0 to getNumTicks()): restores the latest keyframe and replays the ticks since
+	public void seek(_RG_ game,int tick)
+	{
+		if(tick<0 || tick>numTicks)
+			throw new IllegalArgumentException("tick "+tick+" is not in [0,"+numTicks+"]");
+
+		int k=keyframe(tick);
+		int offset=keyframeOffsets[k]+1+4;
+		long randomState=data.getLong(offset);
+		int[] packed=new int[stateSize];
+
+		offset+=8;
+
+		for(int i=0;i<stateSize;i++,offset+=4)
+			packed[i]=data.getInt(offset);
+
+		game.restoreState(packed,randomState);
+
+		for(int t=keyframeTicks[k];t<tick;t++)
+		{
+			decode(t,pacManBuffer,ghostsBuffer);
+			game.advanceGame(pacManBuffer[0],ghostsBuffer);
+		}
+	}
+
+	//Direction taken by Ms Pac-Man at the tick specified
+	public int getPacManAction(int tick)
+	{
+		int[] pacMan=new int[1];
+		decode(tick,pacMan,new int[G.NUM_GHOSTS]);
+
+		return pacMan[0];
+	}
+
+	//Directions taken by the ghosts at the tick specified
+	public int[] getGhostActions(int tick)
+	{
+		int[] ghosts=new int[G.NUM_GHOSTS];
+		decode(tick,new int[1],ghosts);
+
+		return ghosts;
+	}
+
+	//Controller that plays the recorded actions of Ms Pac-Man
+	public PacManController getPacMan()
+	{
+		return new PacManController()
+		{
+			public int getAction(Game game,long timeDue)
+			{
+				return getPacManAction(game.getTotalTime());
+			}
+		};
+	}
+
+	//Controller that plays the recorded actions of the ghosts
+	public GhostController getGhosts()
+	{
+		return new GhostController()
+		{
+			public int[] getActions(Game game,long timeDue)
+			{
+				return getGhostActions(game.getTotalTime());
+			}
+		};
+	}
+
+	//Index of the latest keyframe at or before the tick specified
+	private int keyframe(int tick)
+	{
+		int k=Arrays.binarySearch(keyframeTicks,0,numKeyframes,tick);
+		return k>=0 ? k : -k-2;
+	}
+
+	//Decodes the directions taken at the tick specified, stored after the latest keyframe at or before it
+	private void decode(int tick,int[] pacMan,int[] ghosts)
+	{
+		if(tick<0 || tick>=numTicks)
+			throw new IllegalArgumentException("tick "+tick+" is not in [0,"+numTicks+")");
+
+		int k=keyframe(tick);
+		int offset=keyframeOffsets[k]+1+4+8+4*stateSize+TICK_SIZE*(tick-keyframeTicks[k]);
+		int flags=data.get(offset)&0xff;
+		int directions=data.getShort(offset+1)&0xffff;
+
+		pacMan[0]=(flags&1)!=0 ? NEUTRAL : (directions>>>8)&3;
+
+		for(int i=0;i<ghosts.length;i++)
+			ghosts[i]=(flags&(2<<i))!=0 ? NEUTRAL : (directions>>>(6-2*i))&3;
+	}
+
+	/*
+	 * Writes a binary replay while a game is being played: create the recorder when the game starts (this writes the
+	 * first keyframe), then pass the actions returned by every advanceGame(-) to record(-).
+	 */
+	public static final class Recorder
+	{
+		private final DataOutputStream out;
+		private int level;
+
+		public Recorder(String fileName,G game) throws IOException
+		{
+			out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+			out.writeInt(MAGIC);
+			out.writeInt(game.state.length);
+			writeKeyframe(game);
+		}
+
+		//Records the actions taken during the latest tick (as returned by advanceGame(-)), and a keyframe if a new level started
+		public void record(G game,int[] actionsTaken) throws IOException
+		{
+			int flags=TICK;
+			int directions=0;
+
+			for(int i=0;i<actionsTaken.length;i++)
+			{
+				int direction=actionsTaken[i];
+
+				if(direction==NEUTRAL)
+					flags|=1<<i;
+				else if(direction<0 || direction>3)
+					throw new IllegalArgumentException("cannot record direction "+direction);
+				else
+					directions|=direction<<(8-2*i);
+			}
+
+			out.writeByte(flags);
+			out.writeShort(directions);
+
+			if(game.getCurLevel()!=level && !game.gameOver())
+				writeKeyframe(game);
+		}
+
+		private void writeKeyframe(G game) throws IOException
+		{
+			level=game.getCurLevel();
+
+			out.writeByte(KEYFRAME);
+			out.writeInt(game.getTotalTime());
+			out.writeLong(game.random.getState());
+
+			for(int i=0;i<game.state.length;i++)
+				out.writeInt(game.state[i]);
+
+			out.flush();
+		}
+
+		public void close() throws IOException
+		{
+			out.close();
+		}
+	}
+}
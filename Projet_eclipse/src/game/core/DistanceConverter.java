@@ -0,0 +1,118 @@
+package game.core;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/*
+ * One-shot converter for the pre-computed shortest path distances. The original files (data/da to
+ * data/dd) store one distance per line as text; this class rewrites each of them as a compact binary
+ * file (data/da.bin to data/dd.bin) which G.Maze memory-maps at start-up instead of parsing ~12 MB of
+ * text. Maze distances are small, so each one is stored as a 16-bit value.
+ *
+ * Binary layout (big-endian): MAGIC (int), number of distances (int), then one short per distance,
+ * in the same triangular order as the text files. The value -1 (no path) is stored as is (0xFFFF),
+ * so the data can be read straight into the short[] used by G.Maze.
+ *
+ * Usage: java game.core.DistanceConverter [data directory]
+ */
+public final class DistanceConverter
+{
+	public static final int MAGIC=0x504d4431;			//"PMD1"
+	public static final int HEADER_SIZE=8;				//magic + number of distances
+	public static final String EXTENSION=".bin";
+
+	private static final String[] distNames={"da","db","dc","dd"};
+
+	public static void main(String[] args)
+	{
+		String dir=args.length>0 ? args[0] : "data";
+
+		for(int i=0;i<distNames.length;i++)
+		{
+			String source=dir+File.separator+distNames[i];
+
+			try
+			{
+				long start=System.currentTimeMillis();
+				int count=convert(source,source+EXTENSION);
+				System.out.println(source+" -> "+source+EXTENSION+": "+count+" distances in "+(System.currentTimeMillis()-start)+" ms");
+			}
+			catch(IOException ioe)
+			{
+				System.out.println("Could not convert "+source+": "+ioe.getMessage());
+			}
+		}
+	}
+
+	//Converts a text distance file into the binary format; returns the number of distances written
+	public static int convert(String source,String target) throws IOException
+	{
+		int[] distances=readText(source);
+		DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(target)));
+
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(distances.length);
+
+			for(int i=0;i<distances.length;i++)
+				out.writeShort(encode(distances[i]));
+		}
+		finally
+		{
+			out.close();
+		}
+
+		return distances.length;
+	}
+
+	//Reads all distances from a text file (one per line)
+	private static int[] readText(String fileName) throws IOException
+	{
+		BufferedReader br=new BufferedReader(new InputStreamReader(new FileInputStream(fileName)));
+		int[] distances=new int[1<<16];
+		int index=0;
+
+		try
+		{
+			String input=br.readLine();
+
+			while(input!=null)
+			{
+				if(index==distances.length)
+				{
+					int[] larger=new int[distances.length*2];
+					System.arraycopy(distances,0,larger,0,distances.length);
+					distances=larger;
+				}
+
+				distances[index++]=Integer.parseInt(input.trim());
+				input=br.readLine();
+			}
+		}
+		finally
+		{
+			br.close();
+		}
+
+		int[] result=new int[index];
+		System.arraycopy(distances,0,result,0,index);
+
+		return result;
+	}
+
+	//Maps a distance onto its 16-bit representation (-1, no path, is kept as is)
+	public static short encode(int distance)
+	{
+		if(distance<-1 || distance>Short.MAX_VALUE)
+			throw new IllegalArgumentException("distance does not fit in 16 bits: "+distance);
+
+		return (short)distance;
+	}
+}
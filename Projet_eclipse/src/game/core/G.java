@@ -14,15 +14,15 @@
 package game.core;
 
 import java.io.BufferedReader;
-//import java.io.File;
+import java.io.File;
 //import java.io.FileInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 //import java.net.URL;
-import java.util.ArrayList;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
-import java.util.BitSet;
 
 /*
  * Simple implementation of Ms Pac-Man. The class Game contains all code relating to the
@@ -34,16 +34,42 @@ public class G implements Game
 	//Static stuff (mazes are immutable - hence static)
 	protected static Maze[] mazes=new Maze[NUM_MAZES];			
 	
-	//Variables (game state):
-	protected BitSet pills,powerPills;
+	/*
+	 * Variables (game state): the whole state of a game is packed into a single int[], so that a copy is one array
+	 * copy and a state can be stored, compared or written out as a plain block of ints. The slots are listed below:
+	 * the scalars (booleans stored as 0/1), the four ghost arrays inlined (NUM_GHOSTS entries each) and then the
+	 * active pills and power pills (see ActivePills for the layout of these two segments, which are sized for the
+	 * maze with the most pills).
+	 */
 	//level-specific
-	protected int curMaze,totLevel,levelTime,totalTime,score,ghostEatMultiplier;
-	protected boolean gameOver;
+	protected static final int MAZE=0,LEVEL=1,LEVEL_TIME=2,TOTAL_TIME=3,SCORE=4,GHOST_EAT_MULTIPLIER=5,GAME_OVER=6;
 	//pac-man-specific
-	protected int curPacManLoc,lastPacManDir,livesRemaining;
-	protected boolean extraLife;
+	protected static final int PAC_LOC=7,PAC_DIR=8,LIVES=9,EXTRA_LIFE=10;
 	//ghosts-specific
-	protected int[] curGhostLocs,lastGhostDirs,edibleTimes,lairTimes;
+	protected static final int GHOST_LOCS=11,GHOST_DIRS=GHOST_LOCS+NUM_GHOSTS;
+	protected static final int GHOST_EDIBLE_TIMES=GHOST_DIRS+NUM_GHOSTS,GHOST_LAIR_TIMES=GHOST_EDIBLE_TIMES+NUM_GHOSTS;
+	//pills (followed by the power pills at powerPillsBase)
+	protected static final int HEADER_SIZE=GHOST_LAIR_TIMES+NUM_GHOSTS,PILLS=HEADER_SIZE;
+	protected static int powerPillsBase,stateSize;		//depend on the mazes: set when they are loaded
+	
+	protected int[] state;
+	//Zobrist hash of the state, kept up to date by every write (see set(-))
+	protected long hash;
+	//random number generator of this game (seeded when a new game starts)
+	protected GameRandom random;
+	
+	//scratch buffers so that checking the directions does not allocate
+	private final int[] neighbourBuffer=new int[4],dirBuffer=new int[4];
+	
+	//undo information recorded by apply(-): one record of UNDO_RECORD_SIZE ints per move (the header of the state, the
+	//state of the random number generator, the hash and the pills eaten) plus a copy of the pill segments for moves that end a level
+	private static final int UNDO_RECORD_SIZE=HEADER_SIZE+9;
+	private int[] undoRecords=new int[0];
+	private int[][] undoPills=new int[0][];
+	private int undoDepth;
+	private boolean recordingUndo;
+	//pills eaten during the current move and the positions they occupied in the active sets (filled in for apply(-))
+	private int eatenPill,eatenPillPosition,eatenPowerPill,eatenPowerPillPosition;
 	
 	/////////////////////////////////////////////////////////////////////////////
 	/////////////////  Constructors and Initialisers   //////////////////////////
@@ -52,35 +78,86 @@ public class G implements Game
 	//Constructor
 	protected G(){}
 
-	//loads the mazes and store them
+	//loads the mazes and store them (synchronised as several games may be started in parallel)
 	protected void init()
 	{		
-		for(int i=0;i<mazes.length;i++)
-			if(mazes[i]==null)
-				mazes[i]=new Maze(i);		
+		synchronized(mazes)
+		{
+			if(stateSize==0)
+			{
+				int maxPills=0,maxPowerPills=0;
+				
+				for(int i=0;i<mazes.length;i++)
+				{
+					mazes[i]=new Maze(i);
+					maxPills=Math.max(maxPills,mazes[i].pillIndices.length);
+					maxPowerPills=Math.max(maxPowerPills,mazes[i].powerPillIndices.length);
+				}
+				
+				powerPillsBase=PILLS+ActivePills.segmentSize(maxPills);
+				stateSize=powerPillsBase+ActivePills.segmentSize(maxPowerPills);
+			}
+		}
+	}
+	
+	//Sets up the state of a new game (first level, all lives left) that draws its random numbers from the seed supplied
+	protected void startGame(long seed)
+	{
+		init();		//load mazes if not yet loaded
+		
+		random=new GameRandom(seed);
+		state=new int[stateSize];	//all zero: maze 0, level 0, no score, no extra life, not over
+		
+		resetPills();
+		set(LIVES,G.NUM_LIVES);
+		
+		reset(false);
 	}
 	
 	//Creates an exact copy of the game
 	public Game copy()
+	{
+		return copy(random.split());
+	}
+	
+	//Returns a copy of the packed state of the game (see 'state'), e.g., to store, compare or write out a state
+	public int[] getPackedState()
+	{
+		return state.clone();
+	}
+	
+	//Puts the game back into a state obtained from getPackedState(), with the random number generator at the position
+	//supplied (see GameRandom.getState()); the undo history is cleared. Used to seek in binary replays (see BinaryReplay).
+	protected void restoreState(int[] packed,long randomState)
+	{
+		init();		//load mazes if not yet loaded
+		
+		if(packed.length!=stateSize)
+			throw new IllegalArgumentException("packed state of "+packed.length+" ints, expected "+stateSize);
+		
+		state=packed.clone();
+		hash=computeHash();
+		
+		if(random==null)
+			random=new GameRandom(randomState);
+		
+		random.setState(randomState);
+		undoDepth=0;
+	}
+	
+	//Returns a copy of the game: G is always modifiable, so this is the same as copy()
+	public Game fork()
+	{
+		return copy();
+	}
+	
+	//Creates an exact copy of the game that draws its random numbers from the generator supplied
+	protected G copy(GameRandom random)
 	{
 		G copy=new G();
-		copy.pills=(BitSet)pills.clone();
-		copy.powerPills=(BitSet)powerPills.clone();		
-		copy.curMaze=curMaze;
-		copy.totLevel=totLevel;
-		copy.levelTime=levelTime;
-		copy.totalTime=totalTime;
-		copy.score=score;
-		copy.ghostEatMultiplier=ghostEatMultiplier;
-		copy.gameOver=gameOver;
-		copy.curPacManLoc=curPacManLoc;
-		copy.lastPacManDir=lastPacManDir;
-		copy.livesRemaining=livesRemaining;
-		copy.extraLife=extraLife;
-		copy.curGhostLocs=Arrays.copyOf(curGhostLocs,curGhostLocs.length);
-		copy.lastGhostDirs=Arrays.copyOf(lastGhostDirs,lastGhostDirs.length);
-		copy.edibleTimes=Arrays.copyOf(edibleTimes,edibleTimes.length);
-		copy.lairTimes=Arrays.copyOf(lairTimes,lairTimes.length);
+		copy.state=state.clone();
+		copy.hash=hash;
+		copy.random=random;
 		
 		return copy;
 	}
@@ -90,26 +167,78 @@ public class G implements Game
 	{
 		if(newLevel)
 		{
-			curMaze=(curMaze+1)%G.NUM_MAZES;
-			totLevel++;
-			levelTime=0;	
-			pills=new BitSet(getNumberPills());
-			pills.set(0,getNumberPills());
-			powerPills=new BitSet(getNumberPowerPills());
-			powerPills.set(0,getNumberPowerPills());
+			if(recordingUndo)
+				savePillsForUndo();
+			
+			set(MAZE,(state[MAZE]+1)%G.NUM_MAZES);
+			set(LEVEL,state[LEVEL]+1);
+			set(LEVEL_TIME,0);	
+			resetPills();
 		}
 		
-		curPacManLoc=getInitialPacPosition();
-		lastPacManDir=G.INITIAL_PAC_DIR;
+		set(PAC_LOC,getInitialPacPosition());
+		set(PAC_DIR,G.INITIAL_PAC_DIR);
 		
-		Arrays.fill(curGhostLocs,mazes[curMaze].lairPosition);	
-		lastGhostDirs=Arrays.copyOf(G.INITIAL_GHOST_DIRS,G.INITIAL_GHOST_DIRS.length);
+		for(int i=0;i<NUM_GHOSTS;i++)
+		{
+			set(GHOST_LOCS+i,mazes[state[MAZE]].lairPosition);
+			set(GHOST_DIRS+i,G.INITIAL_GHOST_DIRS[i]);
+			set(GHOST_EDIBLE_TIMES+i,0);
+			set(GHOST_LAIR_TIMES+i,(int)(G.LAIR_TIMES[i]*(Math.pow(LAIR_REDUCTION,state[LEVEL]))));
+		}
+		
+		set(GHOST_EAT_MULTIPLIER,1);
+	}
+	
+	//Makes all pills and power pills of the current maze active (and recomputes the hash from scratch)
+	protected void resetPills()
+	{
+		ActivePills.fill(state,PILLS,getNumberPills());
+		ActivePills.fill(state,powerPillsBase,getNumberPowerPills());
+		hash=computeHash();
+	}
 	
-		Arrays.fill(edibleTimes,0);		
-		ghostEatMultiplier=1;
+	/*
+	 * Zobrist hashing: the hash of a state is the XOR of one 64-bit key per header slot (for the value it holds) and one
+	 * key per active pill and power pill. Writing a slot thus only XORs out the key of the old value and XORs in that of
+	 * the new one, and eating a pill XORs out its key, so the hash is maintained in O(1) per change. The keys are not
+	 * stored in tables (values such as the score are unbounded) but computed by mixing the slot and the value. The
+	 * order of the active pills in their segments is an artefact of the swap-remove and is not part of the hash, nor is
+	 * the state of the random number generator.
+	 */
+	private static long zobrist(int slot,int value)
+	{
+		return GameRandom.mix64(((long)slot<<32)+value+0x9e3779b97f4a7c15L);
+	}
+	
+	//Writes a slot of the header of the state and updates the hash accordingly (all writes to the header go through here)
+	protected final void set(int slot,int value)
+	{
+		hash^=zobrist(slot,state[slot])^zobrist(slot,value);
+		state[slot]=value;
+	}
+	
+	//Computes the hash of the current state from scratch
+	protected long computeHash()
+	{
+		long h=0;
+		
+		for(int slot=0;slot<HEADER_SIZE;slot++)
+			h^=zobrist(slot,state[slot]);
+		
+		for(int i=ActivePills.size(state,PILLS)-1;i>=0;i--)
+			h^=zobrist(PILLS,ActivePills.get(state,PILLS,i));
+		
+		for(int i=ActivePills.size(state,powerPillsBase)-1;i>=0;i--)
+			h^=zobrist(powerPillsBase,ActivePills.get(state,powerPillsBase,i));
 		
-		for(int i=0;i<lairTimes.length;i++)
-			lairTimes[i]=(int)(G.LAIR_TIMES[i]*(Math.pow(LAIR_REDUCTION,totLevel)));
+		return h;
+	}
+	
+	//64-bit Zobrist hash of the game state: equal states (same positions, directions, timers, score, pills...) have equal hashes
+	public long getStateHash()
+	{
+		return hash;
 	}
 		
 	/////////////////////////////////////////////////////////////////////////////
@@ -126,58 +255,159 @@ public class G implements Game
 		
 		//This is primarily done for the replays as reset (as possibly called by feast()) sets the 
 		//last directions to the initial ones, not the ones taken
-		int[] actionsTakens={lastPacManDir,lastGhostDirs[0],lastGhostDirs[1],lastGhostDirs[2],lastGhostDirs[3]};
+		int[] actionsTakens={state[PAC_DIR],state[GHOST_DIRS],state[GHOST_DIRS+1],state[GHOST_DIRS+2],state[GHOST_DIRS+3]};
 		
 		feast();							//ghosts eat pac-man or vice versa
 		
-		for(int i=0;i<lairTimes.length;i++)
-			if(lairTimes[i]>0)
+		for(int i=0;i<NUM_GHOSTS;i++)
+			if(state[GHOST_LAIR_TIMES+i]>0)
 			{
-				lairTimes[i]--;
+				set(GHOST_LAIR_TIMES+i,state[GHOST_LAIR_TIMES+i]-1);
 			
-				if(lairTimes[i]==0)
-					curGhostLocs[i]=mazes[curMaze].initialGhostsPosition;
+				if(state[GHOST_LAIR_TIMES+i]==0)
+					set(GHOST_LOCS+i,mazes[state[MAZE]].initialGhostsPosition);
 			}
 				
-		if(!extraLife && score>=EXTRA_LIFE_SCORE)	//award 1 extra life at 10000 points
+		if(state[EXTRA_LIFE]==0 && state[SCORE]>=EXTRA_LIFE_SCORE)	//award 1 extra life at 10000 points
 		{
-			extraLife=true;
-			livesRemaining++;
+			set(EXTRA_LIFE,1);
+			set(LIVES,state[LIVES]+1);
 		}
 	
-		totalTime++;
-		levelTime++;
+		set(TOTAL_TIME,state[TOTAL_TIME]+1);
+		set(LEVEL_TIME,state[LEVEL_TIME]+1);
 		checkLevelState();	//check if level/game is over
 		
 		return actionsTakens;
 	}
 	
+	/*
+	 * Forward model without copies: apply(-) advances the game exactly like advanceGame(-) but first records a compact
+	 * delta (the header of the state, the state of the random number generator, the hash and the pills eaten) on an internal
+	 * stack; undo() reverts the latest move in place. A search may thus explore a tree of moves on a single game:
+	 * apply(-), evaluate, undo(). The records are reused, so no memory is allocated once the stack has reached the
+	 * maximum depth of the search. copy() does not carry the undo history over.
+	 */
+	public int[] apply(int pacManDir,int[] ghostDirs)
+	{
+		if(undoRecords.length<(undoDepth+1)*UNDO_RECORD_SIZE)
+		{
+			int capacity=Math.max(16,undoDepth*2);
+			undoRecords=Arrays.copyOf(undoRecords,capacity*UNDO_RECORD_SIZE);
+			undoPills=Arrays.copyOf(undoPills,capacity);
+		}
+		
+		int[] r=undoRecords;
+		int i=undoDepth*UNDO_RECORD_SIZE;
+		
+		System.arraycopy(state,0,r,i,HEADER_SIZE);
+		i+=HEADER_SIZE;
+		
+		long randomState=random.getState();
+		r[i++]=(int)(randomState>>>32);
+		r[i++]=(int)randomState;
+		r[i++]=(int)(hash>>>32);
+		r[i++]=(int)hash;
+		
+		eatenPill=-1;
+		eatenPowerPill=-1;
+		r[i+4]=0;
+		recordingUndo=true;
+		
+		int[] actionsTaken;
+		
+		try
+		{
+			actionsTaken=advanceGame(pacManDir,ghostDirs);
+		}
+		finally
+		{
+			recordingUndo=false;
+		}
+		
+		r[i++]=eatenPill;
+		r[i++]=eatenPillPosition;
+		r[i++]=eatenPowerPill;
+		r[i++]=eatenPowerPillPosition;
+		
+		undoDepth++;
+		
+		return actionsTaken;
+	}
+	
+	//Keeps the pill segments of the state before a new level refills them (called from reset(-) during apply(-))
+	private void savePillsForUndo()
+	{
+		int length=stateSize-PILLS;
+		
+		if(undoPills[undoDepth]==null)
+			undoPills[undoDepth]=new int[length];
+		
+		System.arraycopy(state,PILLS,undoPills[undoDepth],0,length);
+		undoRecords[undoDepth*UNDO_RECORD_SIZE+UNDO_RECORD_SIZE-1]=1;
+	}
+	
+	//Reverts the latest move made with apply(-)
+	public void undo()
+	{
+		if(undoDepth==0)
+			throw new IllegalStateException("no move to undo");
+		
+		undoDepth--;
+		
+		int[] r=undoRecords;
+		int i=undoDepth*UNDO_RECORD_SIZE;
+		
+		System.arraycopy(r,i,state,0,HEADER_SIZE);
+		i+=HEADER_SIZE;
+		
+		random.setState(((long)r[i++]<<32)|(r[i++]&0xFFFFFFFFL));
+		hash=((long)r[i++]<<32)|(r[i++]&0xFFFFFFFFL);
+		
+		//a new level refills the pills: put back the pills as they were when the level ended
+		if(r[i+4]==1)
+			System.arraycopy(undoPills[undoDepth],0,state,PILLS,stateSize-PILLS);
+		
+		if(r[i]>=0)
+			ActivePills.restore(state,PILLS,r[i],r[i+1]);
+		
+		if(r[i+2]>=0)
+			ActivePills.restore(state,powerPillsBase,r[i+2],r[i+3]);
+	}
+	
+	//Number of moves made with apply(-) that can still be undone
+	public int getUndoDepth()
+	{
+		return undoDepth;
+	}
+	
 	//Updates the location of Ms Pac-Man
 	protected void updatePacMan(int direction)
 	{
 		direction=checkPacManDir(direction);
-		lastPacManDir=direction;		
-		curPacManLoc=getNeighbour(curPacManLoc,direction);
+		set(PAC_DIR,direction);		
+		set(PAC_LOC,getNeighbour(state[PAC_LOC],direction));
 	}
 		
 	//Checks the direction supplied by the controller and substitutes for a legal one if necessary
 	protected int checkPacManDir(int direction)
 	{
-		int[] neighbours=getPacManNeighbours();
+		int[] neighbours=neighbourBuffer;
+		getPacManNeighbours(neighbours);
 				
-		if((direction>3 || direction<0 || neighbours[direction]==-1) && (lastPacManDir>3 || lastPacManDir<0 || neighbours[lastPacManDir]==-1))
+		if((direction>3 || direction<0 || neighbours[direction]==-1) && (state[PAC_DIR]>3 || state[PAC_DIR]<0 || neighbours[state[PAC_DIR]]==-1))
 			return 4;
 		
 		if(direction<0 || direction>3)
-			direction=lastPacManDir;
+			direction=state[PAC_DIR];
 		
 		if(neighbours[direction]==-1)
-			if(neighbours[lastPacManDir]!=-1) 
-				direction=lastPacManDir;
+			if(neighbours[state[PAC_DIR]]!=-1) 
+				direction=state[PAC_DIR];
 			else
 			{
-				int[] options=getPossiblePacManDirs(true);
-				direction=options[G.rnd.nextInt(options.length)];
+				int numOptions=getPossiblePacManDirs(true,dirBuffer);
+				direction=dirBuffer[random.nextInt(numOptions)];
 			}
 
 		return direction;		
@@ -187,22 +417,22 @@ public class G implements Game
 	protected void updateGhosts(int[] directions,boolean reverse)
 	{
 		if(directions==null)
-			directions=Arrays.copyOf(lastGhostDirs,lastGhostDirs.length);
+			directions=Arrays.copyOfRange(state,GHOST_DIRS,GHOST_DIRS+NUM_GHOSTS);
 		
 		for(int i=0;i<directions.length;i++)
 		{		
-			if(lairTimes[i]==0)
+			if(state[GHOST_LAIR_TIMES+i]==0)
 			{
 				if(reverse)
 				{
-					lastGhostDirs[i]=getReverse(lastGhostDirs[i]);
-					curGhostLocs[i]=getNeighbour(curGhostLocs[i],lastGhostDirs[i]);
+					set(GHOST_DIRS+i,getReverse(state[GHOST_DIRS+i]));
+					set(GHOST_LOCS+i,getNeighbour(state[GHOST_LOCS+i],state[GHOST_DIRS+i]));
 				}
-				else if(edibleTimes[i]==0 || edibleTimes[i]%GHOST_SPEED_REDUCTION!=0)
+				else if(state[GHOST_EDIBLE_TIMES+i]==0 || state[GHOST_EDIBLE_TIMES+i]%GHOST_SPEED_REDUCTION!=0)
 				{
 					directions[i]=checkGhostDir(i,directions[i]);
-					lastGhostDirs[i]=directions[i];
-					curGhostLocs[i]=getNeighbour(curGhostLocs[i],directions[i]);
+					set(GHOST_DIRS+i,directions[i]);
+					set(GHOST_LOCS+i,getNeighbour(state[GHOST_LOCS+i],directions[i]));
 				}
 			}
 		}		
@@ -212,18 +442,19 @@ public class G implements Game
 	protected int checkGhostDir(int whichGhost,int direction)
 	{
 		if(direction<0 || direction>3)
-			direction=lastGhostDirs[whichGhost];
+			direction=state[GHOST_DIRS+whichGhost];
 			
-		int[] neighbours=getGhostNeighbours(whichGhost);
+		int[] neighbours=neighbourBuffer;
+		getGhostNeighbours(whichGhost,neighbours);
 			
 		if(neighbours[direction]==-1)
 		{
-			if(neighbours[lastGhostDirs[whichGhost]]!=-1)
-				direction=lastGhostDirs[whichGhost];
+			if(neighbours[state[GHOST_DIRS+whichGhost]]!=-1)
+				direction=state[GHOST_DIRS+whichGhost];
 			else
 			{
-				int[] options=getPossibleGhostDirs(whichGhost);
-				direction=options[G.rnd.nextInt(options.length)];
+				int numOptions=getPossibleGhostDirs(whichGhost,dirBuffer);
+				direction=dirBuffer[random.nextInt(numOptions)];
 			}
 		}
 
@@ -233,12 +464,19 @@ public class G implements Game
 	//Eats a pill
 	protected void eatPill()
 	{
-		int pillIndex=getPillIndex(curPacManLoc);
+		int pillIndex=getPillIndex(state[PAC_LOC]);
 
-		if(pillIndex>=0 && pills.get(pillIndex))
+		if(pillIndex>=0)
 		{
-			score+=G.PILL;
-			pills.clear(pillIndex);
+			int position=ActivePills.remove(state,PILLS,pillIndex);
+			
+			if(position>=0)
+			{
+				set(SCORE,state[SCORE]+G.PILL);
+				hash^=zobrist(PILLS,pillIndex);
+				eatenPill=pillIndex;
+				eatenPillPosition=position;
+			}
 		}
 	}
 	
@@ -246,29 +484,33 @@ public class G implements Game
 	protected boolean eatPowerPill()
 	{
 		boolean reverse=false;
-		int powerPillIndex=getPowerPillIndex(curPacManLoc);
+		int powerPillIndex=getPowerPillIndex(state[PAC_LOC]);
 		
-		if(powerPillIndex>=0 && powerPills.get(powerPillIndex))
+		int position=powerPillIndex>=0 ? ActivePills.remove(state,powerPillsBase,powerPillIndex) : -1;
+		
+		if(position>=0)
 		{
-			score+=G.POWER_PILL;
-			ghostEatMultiplier=1;
-			powerPills.clear(powerPillIndex);
+			set(SCORE,state[SCORE]+G.POWER_PILL);
+			set(GHOST_EAT_MULTIPLIER,1);
+			hash^=zobrist(powerPillsBase,powerPillIndex);
+			eatenPowerPill=powerPillIndex;
+			eatenPowerPillPosition=position;
 			
 			//This ensures that only ghosts outside the lair (i.e., inside the maze) turn edible
-			int newEdibleTime=(int)(G.EDIBLE_TIME*(Math.pow(G.EDIBLE_TIME_REDUCTION,totLevel)));
+			int newEdibleTime=(int)(G.EDIBLE_TIME*(Math.pow(G.EDIBLE_TIME_REDUCTION,state[LEVEL])));
 			
 			for(int i=0;i<NUM_GHOSTS;i++)
-				if(lairTimes[i]==0)
-					edibleTimes[i]=newEdibleTime;
+				if(state[GHOST_LAIR_TIMES+i]==0)
+					set(GHOST_EDIBLE_TIMES+i,newEdibleTime);
 				else
-					edibleTimes[i]=0;
+					set(GHOST_EDIBLE_TIMES+i,0);
 			
 			//This turns all ghosts edible, independent on whether they are in the lair or not
 //			Arrays.fill(edibleTimes,(int)(G.EDIBLE_TIME*(Math.pow(G.EDIBLE_TIME_REDUCTION,totLevel))));						
 			
 			reverse=true;
 		}
-		else if(levelTime>1 && Math.random()<G.GHOST_REVERSAL)	//random ghost reversal
+		else if(state[LEVEL_TIME]>1 && random.nextDouble()<G.GHOST_REVERSAL)	//random ghost reversal
 			reverse=true;
 		
 		return reverse;
@@ -277,28 +519,28 @@ public class G implements Game
 	//This is where the characters of the game eat one another if possible
 	protected void feast()
 	{		
-		for(int i=0;i<curGhostLocs.length;i++)
+		for(int i=0;i<NUM_GHOSTS;i++)
 		{
-			int distance=getPathDistance(curPacManLoc,curGhostLocs[i]);
+			int distance=getPathDistance(state[PAC_LOC],state[GHOST_LOCS+i]);
 			
 			if(distance<=G.EAT_DISTANCE && distance!=-1)
 			{
-				if(edibleTimes[i]>0)									//pac-man eats ghost
+				if(state[GHOST_EDIBLE_TIMES+i]>0)									//pac-man eats ghost
 				{
-					score+=G.GHOST_EAT_SCORE*ghostEatMultiplier;
-					ghostEatMultiplier*=2;
-					edibleTimes[i]=0;					
-					lairTimes[i]=(int)(G.COMMON_LAIR_TIME*(Math.pow(G.LAIR_REDUCTION,totLevel)));					
-					curGhostLocs[i]=mazes[curMaze].lairPosition;
-					lastGhostDirs[i]=G.INITIAL_GHOST_DIRS[i];
+					set(SCORE,state[SCORE]+G.GHOST_EAT_SCORE*state[GHOST_EAT_MULTIPLIER]);
+					set(GHOST_EAT_MULTIPLIER,state[GHOST_EAT_MULTIPLIER]*2);
+					set(GHOST_EDIBLE_TIMES+i,0);					
+					set(GHOST_LAIR_TIMES+i,(int)(G.COMMON_LAIR_TIME*(Math.pow(G.LAIR_REDUCTION,state[LEVEL]))));					
+					set(GHOST_LOCS+i,mazes[state[MAZE]].lairPosition);
+					set(GHOST_DIRS+i,G.INITIAL_GHOST_DIRS[i]);
 				}
 				else													//ghost eats pac-man
 				{
-					livesRemaining--;
+					set(LIVES,state[LIVES]-1);
 					
-					if(livesRemaining<=0)
+					if(state[LIVES]<=0)
 					{
-						gameOver=true;
+						set(GAME_OVER,1);
 						return;
 					}
 					else
@@ -307,24 +549,26 @@ public class G implements Game
 			}
 		}
 		
-		for(int i=0;i<edibleTimes.length;i++)
-			if(edibleTimes[i]>0)
-				edibleTimes[i]--;
+		for(int i=0;i<NUM_GHOSTS;i++)
+			if(state[GHOST_EDIBLE_TIMES+i]>0)
+				set(GHOST_EDIBLE_TIMES+i,state[GHOST_EDIBLE_TIMES+i]-1);
 	}
 	
 	//Checks the state of the level/game and advances to the next level or terminates the game
 	protected void checkLevelState()
 	{
 		//if all pills have been eaten or the time is up...
-		if((pills.isEmpty() && powerPills.isEmpty()) || levelTime>=LEVEL_LIMIT)
+		int numPills=ActivePills.size(state,PILLS),numPowerPills=ActivePills.size(state,powerPillsBase);
+		
+		if((numPills==0 && numPowerPills==0) || state[LEVEL_TIME]>=LEVEL_LIMIT)
 		{
 			//award any remaining pills to Ms Pac-Man
-			score+=G.PILL*pills.cardinality()+G.POWER_PILL*powerPills.cardinality();			 
+			set(SCORE,state[SCORE]+G.PILL*numPills+G.POWER_PILL*numPowerPills);			 
 			
 			//put a cap on the total number of levels played
-			if(totLevel+1==G.MAX_LEVELS)
+			if(state[LEVEL]+1==G.MAX_LEVELS)
 			{
-				gameOver=true;
+				set(GAME_OVER,1);
 				return;
 			}
 			else
@@ -350,184 +594,219 @@ public class G implements Game
 		return 4;
 	}
 	
+	//The random number generator of this game: controllers should use it instead of Game.rnd so games can be reproduced
+	public GameRandom getRandom()
+	{
+		return random;
+	}
+	
 	//Whether the game is over or not
 	public boolean gameOver()
 	{
-		return gameOver;
+		return state[GAME_OVER]==1;
 	}
 	
-	//Whether the pill specified is still there
+	//Whether the pill specified is still there (false for -1, as returned by getPillIndex(-) for a node without a pill)
 	public boolean checkPill(int nodeIndex)
 	{
-		return pills.get(nodeIndex);
+		return nodeIndex>=0 && nodeIndex<getNumberPills() && ActivePills.contains(state,PILLS,nodeIndex);
 	}
 	
-	//Whether the power pill specified is still there
+	//Whether the power pill specified is still there (false for -1, as returned by getPowerPillIndex(-) for a node without one)
 	public boolean checkPowerPill(int nodeIndex)
 	{
-		return powerPills.get(nodeIndex);
+		return nodeIndex>=0 && nodeIndex<getNumberPowerPills() && ActivePills.contains(state,powerPillsBase,nodeIndex);
 	}
 	
 	//Returns the neighbours of the node at which Ms Pac-Man currently resides
 	public int[] getPacManNeighbours()
 	{
-		return Arrays.copyOf(mazes[curMaze].graph[curPacManLoc].neighbours,mazes[curMaze].graph[curPacManLoc].neighbours.length);
+		int[] neighbours=new int[4];
+		getPacManNeighbours(neighbours);
+		
+		return neighbours;
+	}
+	
+	//Same as above but fills the array supplied (of length 4 at least); returns the number of neighbours
+	public int getPacManNeighbours(int[] neighbours)
+	{
+		Node node=mazes[state[MAZE]].graph[state[PAC_LOC]];
+		System.arraycopy(node.neighbours,0,neighbours,0,4);
+		
+		return node.numNeighbours;
 	}
 	
 	//Returns the neighbours of the node at which the specified ghost currently resides. NOTE: since ghosts are not allowed to reverse, that
 	//neighbour is filtered out. Alternatively use: getNeighbour(), given curGhostLoc[-] for all directions
 	public int[] getGhostNeighbours(int whichGhost)
 	{
-		int[] neighbours=Arrays.copyOf(mazes[curMaze].graph[curGhostLocs[whichGhost]].neighbours,mazes[curMaze].graph[curGhostLocs[whichGhost]].neighbours.length);		
-		neighbours[getReverse(lastGhostDirs[whichGhost])]=-1;
+		int[] neighbours=new int[4];
+		getGhostNeighbours(whichGhost,neighbours);
 		
 		return neighbours;
 	}
 	
+	//Same as above but fills the array supplied (of length 4 at least); returns the number of neighbours left
+	public int getGhostNeighbours(int whichGhost,int[] neighbours)
+	{
+		Node node=mazes[state[MAZE]].graph[state[GHOST_LOCS+whichGhost]];
+		System.arraycopy(node.neighbours,0,neighbours,0,4);
+		int numNeighbours=node.numNeighbours;
+		int reverse=getReverse(state[GHOST_DIRS+whichGhost]);
+		
+		if(neighbours[reverse]!=-1)
+		{
+			neighbours[reverse]=-1;
+			numNeighbours--;
+		}
+		
+		return numNeighbours;
+	}
+	
 	//The current level
 	public int getCurLevel()
 	{
-		return totLevel;
+		return state[LEVEL];
 	}
 	
 	//The current maze (1-4)
 	public int getCurMaze()
 	{
-		return curMaze;
+		return state[MAZE];
 	}
 	
 	//Current node index of Ms Pac-Man
 	public int getCurPacManLoc()
 	{
-		return curPacManLoc;
+		return state[PAC_LOC];
 	}
 	
 	//Current node index of Ms Pac-Man
 	public int getCurPacManDir()
 	{
-		return lastPacManDir;
+		return state[PAC_DIR];
 	}
 	
 	//Lives that remain for Ms Pac-Man
 	public int getLivesRemaining()
 	{
-		return livesRemaining;
+		return state[LIVES];
 	}
 	
 	//Current node at which the specified ghost resides
 	public int getCurGhostLoc(int whichGhost)
 	{
-		return curGhostLocs[whichGhost];
+		return state[GHOST_LOCS+whichGhost];
 	}
 
 	//Current direction of the specified ghost
 	public int getCurGhostDir(int whichGhost)
 	{
-		return lastGhostDirs[whichGhost];
+		return state[GHOST_DIRS+whichGhost];
 	}
 	
 	//Returns the edible time for the specified ghost
 	public int getEdibleTime(int whichGhost)
 	{
-		return edibleTimes[whichGhost];
+		return state[GHOST_EDIBLE_TIMES+whichGhost];
 	}
 	
 	//Simpler check to see if a ghost is edible
 	public boolean isEdible(int whichGhost)
 	{
-		return edibleTimes[whichGhost]>0;
+		return state[GHOST_EDIBLE_TIMES+whichGhost]>0;
 	}
 
 	//Returns the score of the game
 	public int getScore()
 	{
-		return score;
+		return state[SCORE];
 	}
 	
 	//Returns the time of the current level (important with respect to LEVEL_LIMIT)
 	public int getLevelTime()
 	{
-		return levelTime;
+		return state[LEVEL_TIME];
 	}
 	
 	//Total time the game has been played for (at most LEVEL_LIMIT*MAX_LEVELS)
 	public int getTotalTime()
 	{
-		return totalTime;
+		return state[TOTAL_TIME];
 	}
 	
 	//Total number of pills in the maze
 	public int getNumberPills()
 	{
-		return mazes[curMaze].pillIndices.length;
+		return mazes[state[MAZE]].pillIndices.length;
 	}
 	
 	//Total number of power pills in the maze
 	public int getNumberPowerPills()
 	{
-		return mazes[curMaze].powerPillIndices.length;
+		return mazes[state[MAZE]].powerPillIndices.length;
 	}
 	
 	//Time left that the specified ghost will spend in the lair
 	public int getLairTime(int whichGhost)
 	{
-		return lairTimes[whichGhost];
+		return state[GHOST_LAIR_TIMES+whichGhost];
 	}
 	
 	//If in lair (getLairTime(-)>0) or if not at junction
 	public boolean ghostRequiresAction(int whichGhost)
 	{
-		return (isJunction(curGhostLocs[whichGhost]) && (edibleTimes[whichGhost]==0 || edibleTimes[whichGhost]%GHOST_SPEED_REDUCTION!=0));
+		return (isJunction(state[GHOST_LOCS+whichGhost]) && (state[GHOST_EDIBLE_TIMES+whichGhost]==0 || state[GHOST_EDIBLE_TIMES+whichGhost]%GHOST_SPEED_REDUCTION!=0));
 	}
 	
 	//Returns name of maze: A, B, C, D
 	public String getName()
 	{
-		return mazes[curMaze].name;
+		return mazes[state[MAZE]].name;
 	}
 				
 	//Returns the starting position of Ms PacMan
 	public int getInitialPacPosition()
 	{
-		return mazes[curMaze].initialPacPosition;
+		return mazes[state[MAZE]].initialPacPosition;
 	}
 	
 	//Returns the starting position of the ghosts (i.e., first node AFTER leaving the lair)
 	public int getInitialGhostsPosition()
 	{
-		return mazes[curMaze].initialGhostsPosition;
+		return mazes[state[MAZE]].initialGhostsPosition;
 	}
 	
 	//Total number of nodes in the graph (i.e., those with pills, power pills and those that are empty)
 	public int getNumberOfNodes()
 	{
-		return mazes[curMaze].graph.length;
+		return mazes[state[MAZE]].graph.length;
 	}
 		
 	//Returns the x coordinate of the specified node
 	public int getX(int index)
 	{
-		return mazes[curMaze].graph[index].x;
+		return mazes[state[MAZE]].graph[index].x;
 	}
 	
 	//Returns the y coordinate of the specified node
 	public int getY(int index)
 	{
-		return mazes[curMaze].graph[index].y;
+		return mazes[state[MAZE]].graph[index].y;
 	}
 	
 	//Returns the pill index of the node. If it is -1, the node has no pill. Otherwise one can
 	//use the bitset to check whether the pill has already been eaten
 	public int getPillIndex(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].pillIndex;
+		return mazes[state[MAZE]].graph[nodeIndex].pillIndex;
 	}
 	
 	//Returns the power pill index of the node. If it is -1, the node has no pill. Otherwise one 
 	//can use the bitset to check whether the pill has already been eaten
 	public int getPowerPillIndex(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].powerPillIndex;
+		return mazes[state[MAZE]].graph[nodeIndex].powerPillIndex;
 	}
 	
 	//Returns the neighbour of node index that corresponds to direction. In the case of neutral, the 
@@ -537,139 +816,173 @@ public class G implements Game
 		if(direction<0 || direction>3)//this takes care of "neutral"
 			return nodeIndex;
 		else
-			return mazes[curMaze].graph[nodeIndex].neighbours[direction];
+			return mazes[state[MAZE]].graph[nodeIndex].neighbours[direction];
 	}
 		
 	//Returns the indices to all the nodes that have pills
 	public int[] getPillIndices()
 	{
-		return Arrays.copyOf(mazes[curMaze].pillIndices,mazes[curMaze].pillIndices.length);
+		return Arrays.copyOf(mazes[state[MAZE]].pillIndices,mazes[state[MAZE]].pillIndices.length);
 	}
 	
 	//Returns the indices to all the nodes that have power pills
 	public int[] getPowerPillIndices()
 	{
-		return Arrays.copyOf(mazes[curMaze].powerPillIndices,mazes[curMaze].powerPillIndices.length);
+		return Arrays.copyOf(mazes[state[MAZE]].powerPillIndices,mazes[state[MAZE]].powerPillIndices.length);
 	}
 	
 	//Returns the indices to all the nodes that are junctions
 	public int[] getJunctionIndices()
 	{
-		return Arrays.copyOf(mazes[curMaze].junctionIndices,mazes[curMaze].junctionIndices.length);
+		return Arrays.copyOf(mazes[state[MAZE]].junctionIndices,mazes[state[MAZE]].junctionIndices.length);
 	}
 	
 	//Checks of a node is a junction
 	public boolean isJunction(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].numNeighbours>2;
+		return mazes[state[MAZE]].graph[nodeIndex].numNeighbours>2;
 	}
 	
 	//returns the score awarded for the next ghost to be eaten
 	public int getNextEdibleGhostScore()
 	{
-		return G.GHOST_EAT_SCORE*ghostEatMultiplier;
+		return G.GHOST_EAT_SCORE*state[GHOST_EAT_MULTIPLIER];
 	}
 	
 	//returns the number of pills still in the maze
 	public int getNumActivePills()				
 	{
-		return pills.cardinality();
+		return ActivePills.size(state,PILLS);
 	}
 	
 	//returns the number of power pills still in the maze
 	public int getNumActivePowerPills()
 	{
-		return powerPills.cardinality();
+		return ActivePills.size(state,powerPillsBase);
 	}
 	
-	//returns the indices of all active pills in the maze
+	//returns the indices of all active pills in the maze (in no particular order)
 	public int[] getPillIndicesActive()
 	{
-		int[] indices=new int[pills.cardinality()];
-		
-		int index=0;
-		
-		for(int i=0;i<mazes[curMaze].pillIndices.length;i++)
-			if(pills.get(i))
-				indices[index++]=mazes[curMaze].pillIndices[i];		
+		int[] indices=new int[getNumActivePills()];
+		getPillIndicesActive(indices);
 			
 		return indices;
 	}
 	
-	//returns the indices of all active power pills in the maze
-	public int[] getPowerPillIndicesActive()	
+	//fills the array supplied (at least getNumberPills() long) with the indices of all active pills; returns their number
+	public int getPillIndicesActive(int[] indices)
 	{
-		int[] indices=new int[powerPills.cardinality()];
+		int[] pillIndices=mazes[state[MAZE]].pillIndices;
+		int numActive=ActivePills.size(state,PILLS);
 		
-		int index=0;
+		for(int i=0;i<numActive;i++)
+			indices[i]=pillIndices[ActivePills.get(state,PILLS,i)];
 		
-		for(int i=0;i<mazes[curMaze].powerPillIndices.length;i++)
-			if(powerPills.get(i))
-				indices[index++]=mazes[curMaze].powerPillIndices[i];		
+		return numActive;
+	}
+	
+	//returns the indices of all active power pills in the maze (in no particular order)
+	public int[] getPowerPillIndicesActive()	
+	{
+		int[] indices=new int[getNumActivePowerPills()];
+		getPowerPillIndicesActive(indices);
 			
 		return indices;
 	}
+	
+	//fills the array supplied (at least getNumberPowerPills() long) with the indices of all active power pills; returns their number
+	public int getPowerPillIndicesActive(int[] indices)
+	{
+		int[] powerPillIndices=mazes[state[MAZE]].powerPillIndices;
+		int numActive=ActivePills.size(state,powerPillsBase);
+		
+		for(int i=0;i<numActive;i++)
+			indices[i]=powerPillIndices[ActivePills.get(state,powerPillsBase,i)];
+		
+		return numActive;
+	}
 
 	//Returns the number of neighbours of a node: 2, 3 or 4. Exception: lair, which has no neighbours
 	public int getNumNeighbours(int nodeIndex)
 	{
-		return mazes[curMaze].graph[nodeIndex].numNeighbours;
+		return mazes[state[MAZE]].graph[nodeIndex].numNeighbours;
 	}
 	
 	//Returns the actual directions Ms Pac-Man can take
 	public int[] getPossiblePacManDirs(boolean includeReverse)
 	{
-		return getPossibleDirs(curPacManLoc,lastPacManDir,includeReverse);
+		int[] directions=new int[4];
+		
+		return Arrays.copyOf(directions,getPossibleDirs(state[PAC_LOC],state[PAC_DIR],includeReverse,directions));
+	}
+	
+	//Same as above but fills the array supplied (of length 4 at least); returns the number of directions
+	public int getPossiblePacManDirs(boolean includeReverse,int[] directions)
+	{
+		return getPossibleDirs(state[PAC_LOC],state[PAC_DIR],includeReverse,directions);
 	}
 	
 	//Returns the actual directions the specified ghost can take
 	public int[] getPossibleGhostDirs(int whichGhost)
 	{
-		return getPossibleDirs(curGhostLocs[whichGhost],lastGhostDirs[whichGhost],false);		
+		int[] directions=new int[4];
+		
+		return Arrays.copyOf(directions,getPossibleDirs(state[GHOST_LOCS+whichGhost],state[GHOST_DIRS+whichGhost],false,directions));		
 	}
 	
-	//Computes the directions to be taken given the current location
-	private int[] getPossibleDirs(int curLoc,int curDir,boolean includeReverse)
+	//Same as above but fills the array supplied (of length 4 at least); returns the number of directions
+	public int getPossibleGhostDirs(int whichGhost,int[] directions)
 	{
-		int numNeighbours=mazes[curMaze].graph[curLoc].numNeighbours;
-
-		if(numNeighbours==0)
-			return new int[0];
-		
-		int[] nodes=mazes[curMaze].graph[curLoc].neighbours;
-		int[] directions;
-		
-		if(includeReverse || (curDir<0 || curDir>3))
-			directions=new int[numNeighbours];
-		else
-			directions=new int[numNeighbours-1];
-		
+		return getPossibleDirs(state[GHOST_LOCS+whichGhost],state[GHOST_DIRS+whichGhost],false,directions);
+	}
+	
+	//Computes the directions to be taken given the current location; fills 'directions' and returns their number
+	private int getPossibleDirs(int curLoc,int curDir,boolean includeReverse,int[] directions)
+	{
+		int[] nodes=mazes[state[MAZE]].graph[curLoc].neighbours;
+		int reverse=(includeReverse || (curDir<0 || curDir>3)) ? -1 : getReverse(curDir);
 		int index=0;
 		
 		for(int i=0;i<nodes.length;i++)
-			if(nodes[i]!=-1)
-			{
-				if(includeReverse || (curDir<0 || curDir>3))
-					directions[index++]=i;
-				else if(i!=getReverse(curDir))
-					directions[index++]=i;
-			}
+			if(nodes[i]!=-1 && i!=reverse)
+				directions[index++]=i;
 
-		return directions;
+		return index;
 	}
 			
 	//Returns the direction Pac-Man should take to approach/retreat a target (to) given some distance 
-	//measure
+	//measure. Approaching using the PATH distance is a single look-up in the maze's next-direction table.
 	public int getNextPacManDir(int to,boolean closer,DM measure)
 	{
-		return getNextDir(mazes[curMaze].graph[curPacManLoc].neighbours,to,closer,measure);
+		if(closer && measure==DM.PATH)
+			return mazes[state[MAZE]].getNextDir(state[PAC_LOC],to);
+		
+		return getNextDir(mazes[state[MAZE]].graph[state[PAC_LOC]].neighbours,to,closer,measure);
 	}
 	
 	//Returns the direction the ghost should take to approach/retreat a target (to) given some distance 
-	//measure. Reversals are filtered.
+	//measure. Reversals are filtered. Approaching using the PATH distance is a look-up in the ghost table.
 	public int getNextGhostDir(int whichGhost,int to,boolean closer,Game.DM measure)
 	{	
-		return getNextDir(getGhostNeighbours(whichGhost),to,closer,measure);
+		if(closer && measure==DM.PATH)
+			return getNextGhostDir(state[GHOST_LOCS+whichGhost],state[GHOST_DIRS+whichGhost],to);
+		
+		getGhostNeighbours(whichGhost,neighbourBuffer);
+		
+		return getNextDir(neighbourBuffer,to,closer,measure);
+	}
+	
+	//Returns the direction a ghost at node 'from' that last moved in direction 'lastDir' should take to approach 'to' 
+	//(PATH distance, no reversal); -1 if there is no legal move (e.g., in the lair). lastDir must be in 0..3
+	public int getNextGhostDir(int from,int lastDir,int to)
+	{
+		checkGhostLastDir(lastDir);
+		
+		if(mazes[state[MAZE]].graph[from].numNeighbours==0)
+			return -1;
+		
+		return (mazes[state[MAZE]].getGhostEntry(from,lastDir,to)>>>GHOST_DIR_SHIFT)-1;
 	}
 	
 	//This method returns the direction to take given some options (usually corresponding to the
@@ -715,86 +1028,110 @@ public class G implements Game
 	//Returns the PATH distance from any node to any other node
 	public int getPathDistance(int from,int to)
 	{
-		if(from==to)
-			return 0;		
-		else if(from<to)
-			return mazes[curMaze].distances[((to*(to+1))/2)+from];
-		else
-			return mazes[curMaze].distances[((from*(from+1))/2)+to];
+		return mazes[state[MAZE]].getDistance(from,to);
+	}
+	
+	//Returns the node of the active pill closest to 'from' (PATH distance, lowest pill index on ties); -1 if there is none
+	public int getNearestActivePill(int from)
+	{
+		return getNearestActive(from,PILLS,mazes[state[MAZE]].pillIndices,mazes[state[MAZE]].getPillOrder(false));
+	}
+	
+	//Returns the node of the active power pill closest to 'from' (PATH distance, lowest pill index on ties); -1 if there is none
+	public int getNearestActivePowerPill(int from)
+	{
+		return getNearestActive(from,powerPillsBase,mazes[state[MAZE]].powerPillIndices,mazes[state[MAZE]].getPillOrder(true));
+	}
+	
+	//Walks the pills in order of distance from 'from' and returns the first one that has not been eaten yet
+	private int getNearestActive(int from,int base,int[] indices,short[] order)
+	{
+		if(ActivePills.size(state,base)==0)
+			return -1;
+		
+		int numPills=indices.length;
+		
+		for(int i=from*numPills,end=i+numPills;i<end;i++)
+			if(ActivePills.contains(state,base,order[i]))
+				return indices[order[i]];
+		
+		return -1;
 	}
 	
 	//Returns the EUCLEDIAN distance between two nodes in the current maze.
 	public double getEuclideanDistance(int from,int to)
 	{
-		return Math.sqrt(Math.pow(mazes[curMaze].graph[from].x-mazes[curMaze].graph[to].x,2)+Math.pow(mazes[curMaze].graph[from].y-mazes[curMaze].graph[to].y,2));
+		return Math.sqrt(Math.pow(mazes[state[MAZE]].graph[from].x-mazes[state[MAZE]].graph[to].x,2)+Math.pow(mazes[state[MAZE]].graph[from].y-mazes[state[MAZE]].graph[to].y,2));
 	}
 	
 	//Returns the MANHATTEN distance between two nodes in the current maze.
 	public int getManhattenDistance(int from,int to)
 	{
-		return (int)(Math.abs(mazes[curMaze].graph[from].x-mazes[curMaze].graph[to].x)+Math.abs(mazes[curMaze].graph[from].y-mazes[curMaze].graph[to].y));
+		return (int)(Math.abs(mazes[state[MAZE]].graph[from].x-mazes[state[MAZE]].graph[to].x)+Math.abs(mazes[state[MAZE]].graph[from].y-mazes[state[MAZE]].graph[to].y));
 	}
 	
 	//Returns the path of adjacent nodes from one node to another, including these nodes
-	//E.g., path from a to c might be [a,f,r,t,c]
+	//E.g., path from a to c might be [a,f,r,t,c]. The length of the path is known in advance (it
+	//is the PATH distance) and each step is a look-up in the maze's next-direction table.
 	public int[] getPath(int from,int to)
 	{
+		int length=getPathDistance(from,to);
+		
+		if(length<=0)
+			return new int[0];
+		
+		Maze maze=mazes[state[MAZE]];
+		int[] path=new int[length];
 		int currentNode=from;
-		ArrayList<Integer> path=new ArrayList<Integer>();
-		int lastDir;
 
-		while(currentNode!=to)
+		for(int i=0;i<length;i++)
 		{
-			path.add(currentNode);
-			int[] neighbours=mazes[curMaze].graph[currentNode].neighbours;
-			lastDir=getNextDir(neighbours,to,true,G.DM.PATH);
-			currentNode=neighbours[lastDir];
+			path[i]=currentNode;
+			currentNode=maze.graph[currentNode].neighbours[maze.getNextDir(currentNode,to)];
 		}
 
-		int[] arrayPath=new int[path.size()];
-
-		for(int i=0;i<arrayPath.length;i++)
-			arrayPath[i]=path.get(i);
-
-		return arrayPath;
+		return path;
 	}
 	
 	//Similar to getPath(-) but takes into consideration the fact that ghosts may not reverse. Hence the path to be taken
 	//may be significantly longer than the shortest available path
 	public int[] getGhostPath(int whichGhost,int to)
 	{
-		if(mazes[curMaze].graph[curGhostLocs[whichGhost]].numNeighbours==0)
+		int currentNode=state[GHOST_LOCS+whichGhost];
+		int lastDir=state[GHOST_DIRS+whichGhost];
+		int length=getGhostPathDistance(currentNode,lastDir,to);
+		
+		if(length<=0)
 			return new int[0];
 
-		int currentNode=curGhostLocs[whichGhost];
-		ArrayList<Integer> path=new ArrayList<Integer>();
-		int lastDir=lastGhostDirs[whichGhost];
+		Maze maze=mazes[state[MAZE]];
+		int[] path=new int[length];
 
-		while(currentNode!=to)
+		for(int i=0;i<length;i++)
 		{
-			path.add(currentNode);
-			int[] neighbours=getGhostNeighbours(currentNode,lastDir);
-			lastDir=getNextDir(neighbours,to,true,G.DM.PATH);
-			currentNode=neighbours[lastDir];
+			path[i]=currentNode;
+			lastDir=(maze.getGhostEntry(currentNode,lastDir,to)>>>GHOST_DIR_SHIFT)-1;
+			currentNode=maze.graph[currentNode].neighbours[lastDir];
 		}
 
-		int[] arrayPath=new int[path.size()];
-
-		for(int i=0;i<arrayPath.length;i++)
-			arrayPath[i]=path.get(i);
-
-		return arrayPath;
+		return path;
 	}
 	
 	//Returns the node from 'targets' that is closest/farthest from the node 'from' given the distance measure specified
 	public int getTarget(int from,int[] targets,boolean nearest,Game.DM measure)
+	{
+		return getTarget(from,targets,targets.length,nearest,measure);
+	}
+	
+	//Same as above but only considers the first 'numTargets' entries of 'targets' (for use with the buffer-filling methods)
+	public int getTarget(int from,int[] targets,int numTargets,boolean nearest,Game.DM measure)
 	{
 		int target=-1;
 
 		double min=Integer.MAX_VALUE;
 		double max=-Integer.MAX_VALUE;
 
-		for(int i=0;i<targets.length;i++)
+		for(int i=0;i<numTargets;i++)
 		{				
 			double dist=0;
 			
@@ -822,7 +1159,8 @@ public class G implements Game
 		return target;
 	}
 	
-	//Returns the target closes from the position of the ghost, considering that reversals are not allowed
+	//Returns the target closes from the position of the ghost, considering that reversals are not allowed. Targets the ghost
+	//cannot reach (getGhostPathDistance(-) is -1, e.g., the lair) are ignored; -1 if none is reachable
 	public int getGhostTarget(int whichGhost,int[] targets,boolean nearest)
 	{
 		int target=-1;
@@ -833,6 +1171,9 @@ public class G implements Game
 		for(int i=0;i<targets.length;i++)
 		{				
 			double dist=getGhostPathDistance(whichGhost,targets[i]);
+			
+			if(dist<0)
+				continue;
 					
 			if(nearest && dist<min)
 			{
@@ -853,17 +1194,30 @@ public class G implements Game
 	//Returns the path distance for a particular ghost: takes into account the fact that ghosts may not reverse
 	public int getGhostPathDistance(int whichGhost,int to)
 	{
-		return getGhostPath(whichGhost,to).length;
+		return getGhostPathDistance(state[GHOST_LOCS+whichGhost],state[GHOST_DIRS+whichGhost],to);
 	}
 	
-	//Returns the neighbours of a node with the one correspodining to the reverse of direction being deleted (i.e., =-1)
-	private int[] getGhostNeighbours(int node,int lastDirection)
+	//Returns the path distance for a ghost at node 'from' that last moved in direction 'lastDir' (no reversals). This is
+	//a look-up in the maze's ghost table; -1 if following the ghost's shortest moves never reaches 'to' (e.g., the lair).
+	//lastDir must be in 0..3
+	public int getGhostPathDistance(int from,int lastDir,int to)
 	{
-		int[] neighbours=Arrays.copyOf(mazes[curMaze].graph[node].neighbours,mazes[curMaze].graph[node].neighbours.length);		
-		neighbours[getReverse(lastDirection)]=-1;
+		checkGhostLastDir(lastDir);
 		
-		return neighbours;
-	}		
+		if(mazes[state[MAZE]].graph[from].numNeighbours==0)
+			return 0;
+		
+		int distance=mazes[state[MAZE]].getGhostEntry(from,lastDir,to)&GHOST_DIST_MASK;
+		
+		return distance==NO_GHOST_PATH ? -1 : distance;
+	}
+	
+	//The ghost table has entries for the four directions only: anything else (e.g., neutral) would read another node's entry
+	private static void checkGhostLastDir(int lastDir)
+	{
+		if(lastDir<0 || lastDir>3)
+			throw new IllegalArgumentException("last direction of a ghost must be in 0..3, not "+lastDir);
+	}
 	
 	/*
 	 * Stores the actual mazes, each of which is simply a connected graph. The differences between the mazes are the connectivity
@@ -871,13 +1225,20 @@ public class G implements Game
 	 * total: Euclidean, Manhatten and Dijkstra's shortest path distance. The latter is pre-computed and loaded, the others are
 	 * computed on the fly whenever getNextDir(-) is called.
 	 */
+	//Layout of the entries of Maze.ghostTable: the distance in the lower 13 bits (paths have fewer steps than there are
+	//states, i.e., 4 per node), the next direction plus one in the upper three (0 when there is no legal move)
+	private static final int GHOST_DIR_SHIFT=13;
+	private static final int GHOST_DIST_MASK=(1<<GHOST_DIR_SHIFT)-1;
+	private static final int NO_GHOST_PATH=GHOST_DIST_MASK;
+	
 	protected final class Maze
 	{
 		private String pathMazes="data";
 		private String[] nodeNames={"a","b","c","d"};
 		private String[] distNames={"da","db","dc","dd"};
 		
-		protected int[] distances,pillIndices,powerPillIndices,junctionIndices;				//Information for the controllers
+		protected short[] distances;														//Shortest path distances (16 bits suffice: half the memory of an int[])
+		protected int[] pillIndices,powerPillIndices,junctionIndices;						//Information for the controllers
 		protected Node[] graph;																//The actual maze, stored as a graph (set of nodes)
 		protected int initialPacPosition,lairPosition,initialGhostsPosition,width,height;	//Maze-specific information
 		protected String name;																//Name of the Maze
@@ -889,12 +1250,237 @@ public class G implements Game
 		 * 6 by going left. The directions returned by the controllers should thus be in {0,1,2,3} and can be used
 		 * directly to determine the next node to go to.
 		 */		
+		private volatile byte[] nextDirs;													//Next direction from any node towards any other (built on first use)
+		private volatile char[] ghostTable;													//Ghost distance and next direction for (target,node,last direction)
+		private volatile short[] pillOrder,powerPillOrder;									//(Power) pills sorted by distance from every node
+		
 		protected Maze(int index)
 		{
 			loadNodes(nodeNames[index]);
 			loadDistances(distNames[index]);
 		}
 		
+		//Returns the PATH distance from any node to any other node
+		protected int getDistance(int from,int to)
+		{
+			if(from==to)
+				return 0;		
+			else if(from<to)
+				return distances[((to*(to+1))/2)+from];
+			else
+				return distances[((from*(from+1))/2)+to];
+		}
+		
+		//Returns the direction to take at 'from' to get closer to 'to' along a shortest path (-1 if 'from' has no neighbours)
+		protected int getNextDir(int from,int to)
+		{
+			byte[] table=nextDirs;
+			
+			if(table==null)
+				table=buildNextDirs();
+			
+			return table[from*graph.length+to];
+		}
+		
+		/*
+		 * Pre-computes the next-direction table: for every pair of nodes (from,to), the direction of the neighbour of 'from'
+		 * that is closest to 'to'. Ties are broken exactly as in G.getNextDir(-) (the first direction wins), so the table gives
+		 * the same answers as probing the distances of all neighbours. One byte per pair, i.e., about 2 MB per maze.
+		 */
+		private synchronized byte[] buildNextDirs()
+		{
+			if(nextDirs==null)
+			{
+				int numNodes=graph.length;
+				byte[] table=new byte[numNodes*numNodes];
+				
+				for(int from=0;from<numNodes;from++)
+				{
+					int[] neighbours=graph[from].neighbours;
+					
+					for(int to=0;to<numNodes;to++)
+					{
+						int dir=-1;
+						int min=Integer.MAX_VALUE;
+						
+						for(int i=0;i<neighbours.length;i++)
+							if(neighbours[i]!=-1)
+							{
+								int dist=getDistance(neighbours[i],to);
+								
+								if(dist<min)
+								{
+									min=dist;
+									dir=i;
+								}
+							}
+						
+						table[from*numNodes+to]=(byte)dir;
+					}
+				}
+				
+				nextDirs=table;
+			}
+			
+			return nextDirs;
+		}
+		
+		//Returns the ghost table entry for a ghost at 'from' that last moved in 'lastDir' and heads for 'to'
+		protected int getGhostEntry(int from,int lastDir,int to)
+		{
+			char[] table=ghostTable;
+			
+			if(table==null)
+				table=buildGhostTable();
+			
+			return table[(to*graph.length+from)*4+lastDir];
+		}
+		
+		/*
+		 * Pre-computes the ghost table. A ghost's state is its node and the direction it last moved in (which rules out
+		 * reversing). For every target and state, the table stores the direction getNextGhostDir(-) picks (the allowed 
+		 * neighbour closest to the target, first direction on ties, or none if there is no allowed neighbour) and the length of the path obtained by following these 
+		 * directions, i.e., what getGhostPath(-) returns. States are resolved one target at a time by following the moves
+		 * until a state of known length is reached; the lengths are then filled in backwards. Moves that loop without ever
+		 * reaching the target (only possible for unreachable targets such as the lair) are marked NO_GHOST_PATH.
+		 * Two bytes per entry, i.e., about 15 MB for the largest maze.
+		 */
+		private synchronized char[] buildGhostTable()
+		{
+			if(ghostTable==null)
+			{
+				final int UNKNOWN=-1,ON_STACK=-2;
+				int numNodes=graph.length;
+				int numStates=numNodes*4;
+				char[] table=new char[numStates*numNodes];
+				int[] dirs=new int[numStates];
+				int[] nextState=new int[numStates];
+				int[] lengths=new int[numStates];
+				int[] stack=new int[numStates];
+				int[] distancesTo=new int[numNodes];
+				
+				for(int to=0;to<numNodes;to++)
+				{
+					for(int node=0;node<numNodes;node++)
+						distancesTo[node]=getDistance(node,to);
+					
+					for(int state=0;state<numStates;state++)
+					{
+						int[] neighbours=graph[state/4].neighbours;
+						int reverse=getReverse(state%4);
+						int dir=-1;
+						int min=Integer.MAX_VALUE;
+						
+						for(int i=0;i<neighbours.length;i++)
+							if(neighbours[i]!=-1 && i!=reverse)
+							{
+								int dist=distancesTo[neighbours[i]];
+								
+								if(dist<min)
+								{
+									min=dist;
+									dir=i;
+								}
+							}
+						
+						dirs[state]=dir;
+						nextState[state]=dir==-1 ? -1 : neighbours[dir]*4+dir;
+						lengths[state]=state/4==to ? 0 : UNKNOWN;
+					}
+					
+					for(int state=0;state<numStates;state++)
+					{
+						int size=0;
+						int current=state;
+						
+						//follow the moves until the length of the current state is known (or a loop/dead end is hit)
+						while(lengths[current]==UNKNOWN && nextState[current]!=-1)
+						{
+							lengths[current]=ON_STACK;
+							stack[size++]=current;
+							current=nextState[current];
+						}
+						
+						int length=lengths[current];
+						
+						if(length==UNKNOWN || length==ON_STACK)
+						{
+							length=NO_GHOST_PATH;
+							
+							if(lengths[current]==UNKNOWN)
+								lengths[current]=NO_GHOST_PATH;
+						}
+						
+						while(size>0)
+						{
+							if(length!=NO_GHOST_PATH)
+								length++;
+							
+							lengths[stack[--size]]=length;
+						}
+					}
+					
+					for(int state=0;state<numStates;state++)
+						table[to*numStates+state]=(char)(((dirs[state]+1)<<GHOST_DIR_SHIFT)|lengths[state]);
+				}
+				
+				ghostTable=table;
+			}
+			
+			return ghostTable;
+		}
+		
+		//Returns, for every node in turn, the indices of all (power) pills sorted by distance from that node
+		protected short[] getPillOrder(boolean power)
+		{
+			short[] order=power ? powerPillOrder : pillOrder;
+			
+			if(order==null)
+				order=buildPillOrder(power);
+			
+			return order;
+		}
+		
+		/*
+		 * Pre-computes the pill order: for every node, the pill indices (not node indices) sorted by increasing PATH distance
+		 * from that node, ties broken by pill index; pills that cannot be reached come last. The nearest active pill is then
+		 * the first entry that has not been eaten, which is usually found after a handful of entries rather than a scan over
+		 * all active pills. Two bytes per (node,pill) pair, i.e., about 600 KB for the pills of the largest maze.
+		 */
+		private synchronized short[] buildPillOrder(boolean power)
+		{
+			short[] order=power ? powerPillOrder : pillOrder;
+			
+			if(order==null)
+			{
+				int[] indices=power ? powerPillIndices : pillIndices;
+				int numPills=indices.length;
+				int[] keys=new int[numPills];
+				order=new short[graph.length*numPills];
+				
+				for(int from=0;from<graph.length;from++)
+				{
+					for(int i=0;i<numPills;i++)
+					{
+						int dist=getDistance(from,indices[i]);
+						keys[i]=((dist<0 ? Short.MAX_VALUE : dist)<<16)|i;
+					}
+					
+					Arrays.sort(keys);
+					
+					for(int i=0;i<numPills;i++)
+						order[from*numPills+i]=(short)(keys[i]&0xFFFF);
+				}
+				
+				if(power)
+					powerPillOrder=order;
+				else
+					pillOrder=order;
+			}
+			
+			return order;
+		}
+		
 		//Loads all the nodes from files and initialises all maze-specific information.
 		private void loadNodes(String fileName)
 		{
@@ -953,11 +1539,27 @@ public class G implements Game
 		/*
 		 * Loads the shortest path distances which have been pre-computed. The data contains the shortest distance from
 		 * any node in the maze to any other node. Since the graph is symmetric, the symmetries have been removed to preserve
-		 * memory and all distances are stored in a 1D array; they are looked-up using getDistance(-). 
+		 * memory and all distances are stored in a 1D array; they are looked-up using getDistance(-). The binary
+		 * version of the data (see DistanceConverter) is used if present as it loads much faster than the text.
 		 */		
 		private void loadDistances(String fileName)
 		{
-			this.distances=new int[((graph.length*(graph.length-1))/2)+graph.length];
+			this.distances=new short[((graph.length*(graph.length-1))/2)+graph.length];
+			
+			File binary=new File(pathMazes+System.getProperty("file.separator")+fileName+DistanceConverter.EXTENSION);
+			
+			if(binary.exists())
+			{
+				try
+				{
+					loadBinaryDistances(binary);
+					return;
+				}
+				catch(IOException ioe)
+				{
+					ioe.printStackTrace();	//fall back to the text version
+				}
+			}
 			
 	        try
 	        {	        		        	
@@ -971,7 +1573,7 @@ public class G implements Game
 	            
 	            while(input!=null)
 	            {	
-                	distances[index++]=Integer.parseInt(input);
+                	distances[index++]=DistanceConverter.encode(Integer.parseInt(input));
 	                input=br.readLine();
 	            }
 	        }
@@ -980,6 +1582,33 @@ public class G implements Game
 	            ioe.printStackTrace();
 	        }
 		}
+		
+		//Reads the distances written by DistanceConverter through a memory-mapped buffer: only reading the file goes
+		//through the page cache (shared by all processes), the distances are copied into this maze's own array.
+		//A file of the wrong size (e.g. truncated) throws an IOException, so that the text version is used instead
+		private void loadBinaryDistances(File file) throws IOException
+		{
+			FileInputStream fis=new FileInputStream(file);
+			
+			try
+			{
+				FileChannel channel=fis.getChannel();
+				
+				if(channel.size()!=8+2L*distances.length)
+					throw new IOException("Invalid or outdated distance file: "+file);
+				
+				MappedByteBuffer buffer=channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size());
+				
+				if(buffer.getInt()!=DistanceConverter.MAGIC || buffer.getInt()!=distances.length)
+					throw new IOException("Invalid or outdated distance file: "+file);
+				
+				buffer.asShortBuffer().get(distances);
+			}
+			finally
+			{
+				fis.close();
+			}
+		}
 	}
 	
 	/*
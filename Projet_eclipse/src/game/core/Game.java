@@ -49,10 +49,16 @@ public interface Game
 	public static final int[] INITIAL_GHOST_DIRS={3,1,3,1};	//initial directions for the ghosts (after leaving the lair)
 	public static final int GHOST_SPEED_REDUCTION=2;		//difference in speed when ghosts are edible (every GHOST_SPEED_REDUCTION, a ghost remains stationary)
 	
-	public static final Random rnd=new Random();
+	public static final Random rnd=new Random();					//shared by all games in the JVM - kept for compatibility only, use getRandom() instead
 	
-	public Game copy();												//returns an exact copy of the game (forward model)
+	public Game copy();												//returns an exact copy of the game (forward model); the copy receives an independent random number generator split from this game's
+	public Game fork();												//returns a modifiable copy of the game to simulate moves on (same as copy(); needed with the read-only views handed out by Exec)
+	public GameRandom getRandom();									//returns the random number generator of this game (seeded when the game started; draw from it rather than from rnd so games can be replayed)
 	public int[] advanceGame(int pacManDir,int[] ghostDirs);		//advances the game using the actions (directions) supplied; returns all directions played [PacMan, Ghost1, Ghost2, Ghost3, Ghost4]
+	public int[] apply(int pacManDir,int[] ghostDirs);				//same as advanceGame(-) but records a compact delta so that the move can be reverted in place with undo() (forward model without copies)
+	public void undo();												//reverts the latest move made with apply(-), including the state of the random number generator; throws IllegalStateException if there is none
+	public int getUndoDepth();										//returns the number of moves made with apply(-) that can still be undone
+	public long getStateHash();										//returns a 64-bit (Zobrist) hash of the game state, maintained incrementally: use it to key transposition tables or caches
 	public int getReverse(int direction);							//returns the reverse of the direction supplied
 	public boolean gameOver();										//returns true is Ms Pac-Man has lost all her lives or if MAX_LEVELS has been reached
 	public boolean checkPill(int pillIndex);						//checks if the pill specified is still available
@@ -60,6 +66,8 @@ public interface Game
 	
 	public int[] getPacManNeighbours();								//returns an array of size 4, indicating neighbouring nodes for the current position of Ms Pac-Man. E.g., [-1,12,-1,44] for neighbours 12 and 44 in direction RIGHT and LEFT
 	public int[] getGhostNeighbours(int whichGhost);				//returns an array of size 4, indicating neighbouring nodes for the current position of the ghost specified. Replaces the direction corresponding to the opposite previous direction with -1
+	public int getPacManNeighbours(int[] neighbours);				//same as getPacManNeighbours() but fills the array supplied (length>=4) and returns the number of neighbours - does not allocate
+	public int getGhostNeighbours(int whichGhost,int[] neighbours);	//same as getGhostNeighbours(-) but fills the array supplied (length>=4) and returns the number of neighbours - does not allocate
 	
 	public int getCurLevel();										//returns the current level
 	public int getCurMaze();										//returns the current maze
@@ -93,8 +101,10 @@ public interface Game
 	public int getNextEdibleGhostScore();							//returns the score awarded for the next ghost to be eaten
 	public int getNumActivePills();									//returns the number of pills still in the maze
 	public int getNumActivePowerPills();							//returns the number of power pills still in the maze
-	public int[] getPillIndicesActive();							//returns the indices of all active pills in the maze
-	public int[] getPowerPillIndicesActive();						//returns the indices of all active power pills in the maze
+	public int[] getPillIndicesActive();							//returns the indices of all active pills in the maze (in no particular order)
+	public int[] getPowerPillIndicesActive();						//returns the indices of all active power pills in the maze (in no particular order)
+	public int getPillIndicesActive(int[] indices);					//fills the array supplied (length>=getNumberPills()) with the indices of all active pills and returns their number - does not allocate
+	public int getPowerPillIndicesActive(int[] indices);			//fills the array supplied (length>=getNumberPowerPills()) with the indices of all active power pills and returns their number - does not allocate
 	
 	public boolean isJunction(int nodeIndex);						//returns true if node is a junction (more than 2 neighbours)
 	public int getNumNeighbours(int nodeIndex);						//returns the number of neighbours of the node specified
@@ -109,10 +119,17 @@ public interface Game
 	
 	public int[] getPossiblePacManDirs(boolean includeReverse);		//returns the set of possible directions for Ms Pac-Man, with or without the direction opposite to the last direction taken
 	public int[] getPossibleGhostDirs(int whichGhost);				//returns the set of possible directions for the ghost specified (excludes the opposite of the previous direction)
+	public int getPossiblePacManDirs(boolean includeReverse,int[] directions);	//same as getPossiblePacManDirs(-) but fills the array supplied (length>=4) and returns the number of directions - does not allocate
+	public int getPossibleGhostDirs(int whichGhost,int[] directions);			//same as getPossibleGhostDirs(-) but fills the array supplied (length>=4) and returns the number of directions - does not allocate
 
 	public int[] getPath(int from,int to);										//returns the path from one node to another (e.g., [1,2,5,7,9] for 1 to 9)
 	public int[] getGhostPath(int whichGhost,int to);							//returns the path from one node to another, taking into account that reversals are not possible
 	public int getTarget(int from,int[] targets,boolean nearest,DM measure);	//selects a target from 'targets' given current position ('from'), a distance measure and whether it should be the point closest or farthest
-	public int getGhostTarget(int from,int[] targets,boolean nearest);			//selects a target for a ghost (accounts for the fact that ghosts may not reverse)
-	public int getGhostPathDistance(int whichGhost,int to);						//returns the distance of a path for the ghost specified (accounts for the fact that ghosts may not reverse)
+	public int getTarget(int from,int[] targets,int numTargets,boolean nearest,DM measure);	//same as above, considering only the first 'numTargets' entries of 'targets'
+	public int getNearestActivePill(int from);						//returns the active pill closest to 'from' (PATH distance, ties: lowest pill index), -1 if none - uses a pre-computed index rather than a scan
+	public int getNearestActivePowerPill(int from);					//returns the active power pill closest to 'from' (PATH distance, ties: lowest pill index), -1 if none - uses a pre-computed index rather than a scan
+	public int getGhostTarget(int from,int[] targets,boolean nearest);			//selects a target for a ghost (accounts for the fact that ghosts may not reverse; unreachable targets are ignored)
+	public int getGhostPathDistance(int whichGhost,int to);						//returns the distance of a path for the ghost specified (accounts for the fact that ghosts may not reverse), -1 if the ghost cannot reach 'to' (e.g., the lair)
+	public int getGhostPathDistance(int from,int lastDir,int to);				//same for a ghost at node 'from' that last moved in direction 'lastDir' (pre-computed: O(1), no allocation), -1 if unreachable; lastDir must be in 0..3
+	public int getNextGhostDir(int from,int lastDir,int to);					//returns the direction a ghost at 'from' that last moved in 'lastDir' should take to approach 'to' (PATH distance, no reversal)
 }
\ No newline at end of file
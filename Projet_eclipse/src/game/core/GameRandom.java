@@ -0,0 +1,134 @@
+package game.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Small, fast and splittable pseudo-random number generator (SplitMix64, the algorithm behind
+ * java.util.SplittableRandom). Every game owns its own instance, seeded when the game starts, so
+ * that games running in parallel never contend on a shared generator and any game can be replayed
+ * exactly from its seed. Instances are NOT thread-safe: use split() to hand an independent stream
+ * to another thread or to a copy of the game.
+ */
+public final class GameRandom
+{
+	private static final long GOLDEN_GAMMA=0x9e3779b97f4a7c15L;
+	private static final AtomicLong seeder=new AtomicLong(mix64(System.currentTimeMillis())^mix64(System.nanoTime()));
+
+	private long seed;
+	private long gamma;
+
+	//Creates a generator with the seed specified: the same seed always produces the same sequence
+	public GameRandom(long seed)
+	{
+		this(seed,GOLDEN_GAMMA);
+	}
+
+	private GameRandom(long seed,long gamma)
+	{
+		this.seed=seed;
+		this.gamma=gamma;
+	}
+
+	//Returns a seed that differs from all other seeds handed out by this method in this JVM
+	public static long newSeed()
+	{
+		return mix64(seeder.getAndAdd(GOLDEN_GAMMA));
+	}
+
+	//Returns a new generator whose sequence is (statistically) independent of this one. Advances this generator.
+	public GameRandom split()
+	{
+		return new GameRandom(nextLong(),mixGamma(nextSeed()));
+	}
+
+	//Same as split() but re-initialises the generator supplied instead of allocating a new one
+	void split(GameRandom into)
+	{
+		into.seed=nextLong();
+		into.gamma=mixGamma(nextSeed());
+	}
+
+	public long nextLong()
+	{
+		return mix64(nextSeed());
+	}
+
+	public int nextInt()
+	{
+		return mix32(nextSeed());
+	}
+
+	//Uniformly distributed value in [0,bound)
+	public int nextInt(int bound)
+	{
+		if(bound<=0)
+			throw new IllegalArgumentException("bound must be positive: "+bound);
+
+		int r=mix32(nextSeed());
+		int m=bound-1;
+
+		if((bound&m)==0)	//power of two
+			return r&m;
+
+		//rejection sampling to avoid the modulo bias
+		for(int u=r>>>1;u+m-(r=u%bound)<0;u=mix32(nextSeed())>>>1);
+
+		return r;
+	}
+
+	//Uniformly distributed value in [0,1)
+	public double nextDouble()
+	{
+		return (mix64(nextSeed())>>>11)*0x1.0p-53;
+	}
+
+	//Uniformly distributed value in [0,1)
+	public float nextFloat()
+	{
+		return (mix32(nextSeed())>>>8)*0x1.0p-24f;
+	}
+
+	public boolean nextBoolean()
+	{
+		return mix32(nextSeed())<0;
+	}
+
+	//Current position in the sequence: restoring it with setState(-) replays the same values (used by G.undo())
+	long getState()
+	{
+		return seed;
+	}
+
+	void setState(long state)
+	{
+		this.seed=state;
+	}
+
+	private long nextSeed()
+	{
+		return seed+=gamma;
+	}
+
+	static long mix64(long z)
+	{
+		z=(z^(z>>>30))*0xbf58476d1ce4e5b9L;
+		z=(z^(z>>>27))*0x94d049bb133111ebL;
+		return z^(z>>>31);
+	}
+
+	private static int mix32(long z)
+	{
+		z=(z^(z>>>33))*0x62a9d9ed799705f5L;
+		return (int)(((z^(z>>>28))*0xcb24d0a5c88c35b3L)>>>32);
+	}
+
+	//Gammas must be odd and have enough bit transitions to produce good sequences
+	private static long mixGamma(long z)
+	{
+		z=(z^(z>>>33))*0xff51afd7ed558ccdL;
+		z=(z^(z>>>33))*0xc4ceb9fe1a85ec53L;
+		z=(z^(z>>>33))|1L;
+		int n=Long.bitCount(z^(z>>>1));
+		return (n<24) ? z^0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -0,0 +1,394 @@
+package game.core;
+
+/*
+ * Read-only, zero-copy view of a game for the controllers. Instead of handing every controller a full copy() of the
+ * game every tick, Exec hands it this view of the live game: all queries are answered by the game itself and the
+ * methods that would change the game (advanceGame(-), apply(-) and undo()) throw an UnsupportedOperationException.
+ * Controllers that need to simulate moves call fork(), which returns an independent copy of the game.
+ *
+ * Before every controller call, refresh() gives the view a random number generator split from the game's, exactly
+ * as copy() would: random numbers drawn by the controller thus never alter the game's own sequence and games play
+ * out as they did with copies. The view reflects the live game, so it must only be used during the call it was 
+ * handed for and never while the game is being advanced by another thread (the timed modes still use copies).
+ */
+public final class ReadOnlyGame implements Game
+{
+	private final G game;
+	private final GameRandom random=new GameRandom(0);
+	
+	public ReadOnlyGame(G game)
+	{
+		this.game=game;
+	}
+	
+	//Prepares the view for the next controller call (to be called once per call, as one would call copy())
+	public ReadOnlyGame refresh()
+	{
+		game.random.split(random);
+		
+		return this;
+	}
+	
+	//Returns an independent, modifiable copy of the game (the forward model); leaves the game itself untouched
+	public Game fork()
+	{
+		return game.copy(random.split());
+	}
+	
+	//Same as fork(): a copy is the only modifiable version of the game a controller can get
+	public Game copy()
+	{
+		return fork();
+	}
+	
+	//The random number generator handed to this view by the latest refresh()
+	public GameRandom getRandom()
+	{
+		return random;
+	}
+	
+	public int[] advanceGame(int pacManDir,int[] ghostDirs)
+	{
+		throw new UnsupportedOperationException("read-only view of the game: use fork() to simulate moves");
+	}
+	
+	public int[] apply(int pacManDir,int[] ghostDirs)
+	{
+		throw new UnsupportedOperationException("read-only view of the game: use fork() to simulate moves");
+	}
+	
+	public void undo()
+	{
+		throw new UnsupportedOperationException("read-only view of the game: use fork() to simulate moves");
+	}
+	
+	public int getUndoDepth()
+	{
+		return 0;
+	}
+	
+	public long getStateHash()
+	{
+		return game.getStateHash();
+	}
+	
+	public int getReverse(int direction)
+	{
+		return game.getReverse(direction);
+	}
+	
+	public boolean gameOver()
+	{
+		return game.gameOver();
+	}
+	
+	public boolean checkPill(int pillIndex)
+	{
+		return game.checkPill(pillIndex);
+	}
+	
+	public boolean checkPowerPill(int powerPillIndex)
+	{
+		return game.checkPowerPill(powerPillIndex);
+	}
+	
+	public int[] getPacManNeighbours()
+	{
+		return game.getPacManNeighbours();
+	}
+	
+	public int[] getGhostNeighbours(int whichGhost)
+	{
+		return game.getGhostNeighbours(whichGhost);
+	}
+	
+	public int getPacManNeighbours(int[] neighbours)
+	{
+		return game.getPacManNeighbours(neighbours);
+	}
+	
+	public int getGhostNeighbours(int whichGhost,int[] neighbours)
+	{
+		return game.getGhostNeighbours(whichGhost,neighbours);
+	}
+	
+	public int getCurLevel()
+	{
+		return game.getCurLevel();
+	}
+	
+	public int getCurMaze()
+	{
+		return game.getCurMaze();
+	}
+	
+	public int getCurPacManLoc()
+	{
+		return game.getCurPacManLoc();
+	}
+	
+	public int getCurPacManDir()
+	{
+		return game.getCurPacManDir();
+	}
+	
+	public int getLivesRemaining()
+	{
+		return game.getLivesRemaining();
+	}
+	
+	public int getCurGhostLoc(int whichGhost)
+	{
+		return game.getCurGhostLoc(whichGhost);
+	}
+	
+	public int getCurGhostDir(int whichGhost)
+	{
+		return game.getCurGhostDir(whichGhost);
+	}
+	
+	public int getEdibleTime(int whichGhost)
+	{
+		return game.getEdibleTime(whichGhost);
+	}
+	
+	public boolean isEdible(int whichGhost)
+	{
+		return game.isEdible(whichGhost);
+	}
+	
+	public int getScore()
+	{
+		return game.getScore();
+	}
+	
+	public int getLevelTime()
+	{
+		return game.getLevelTime();
+	}
+	
+	public int getTotalTime()
+	{
+		return game.getTotalTime();
+	}
+	
+	public int getNumberPills()
+	{
+		return game.getNumberPills();
+	}
+	
+	public int getNumberPowerPills()
+	{
+		return game.getNumberPowerPills();
+	}
+	
+	public int getLairTime(int whichGhost)
+	{
+		return game.getLairTime(whichGhost);
+	}
+	
+	public boolean ghostRequiresAction(int whichGhost)
+	{
+		return game.ghostRequiresAction(whichGhost);
+	}
+	
+	public String getName()
+	{
+		return game.getName();
+	}
+	
+	public int getInitialPacPosition()
+	{
+		return game.getInitialPacPosition();
+	}
+	
+	public int getInitialGhostsPosition()
+	{
+		return game.getInitialGhostsPosition();
+	}
+	
+	public int getNumberOfNodes()
+	{
+		return game.getNumberOfNodes();
+	}
+	
+	public int getX(int nodeIndex)
+	{
+		return game.getX(nodeIndex);
+	}
+	
+	public int getY(int nodeIndex)
+	{
+		return game.getY(nodeIndex);
+	}
+	
+	public int getPillIndex(int nodeIndex)
+	{
+		return game.getPillIndex(nodeIndex);
+	}
+	
+	public int getPowerPillIndex(int nodeIndex)
+	{
+		return game.getPowerPillIndex(nodeIndex);
+	}
+	
+	public int getNeighbour(int nodeIndex,int direction)
+	{
+		return game.getNeighbour(nodeIndex,direction);
+	}
+	
+	public int[] getPillIndices()
+	{
+		return game.getPillIndices();
+	}
+	
+	public int[] getPowerPillIndices()
+	{
+		return game.getPowerPillIndices();
+	}
+	
+	public int[] getJunctionIndices()
+	{
+		return game.getJunctionIndices();
+	}
+	
+	public int getNextEdibleGhostScore()
+	{
+		return game.getNextEdibleGhostScore();
+	}
+	
+	public int getNumActivePills()
+	{
+		return game.getNumActivePills();
+	}
+	
+	public int getNumActivePowerPills()
+	{
+		return game.getNumActivePowerPills();
+	}
+	
+	public int[] getPillIndicesActive()
+	{
+		return game.getPillIndicesActive();
+	}
+	
+	public int[] getPowerPillIndicesActive()
+	{
+		return game.getPowerPillIndicesActive();
+	}
+	
+	public int getPillIndicesActive(int[] indices)
+	{
+		return game.getPillIndicesActive(indices);
+	}
+	
+	public int getPowerPillIndicesActive(int[] indices)
+	{
+		return game.getPowerPillIndicesActive(indices);
+	}
+	
+	public boolean isJunction(int nodeIndex)
+	{
+		return game.isJunction(nodeIndex);
+	}
+	
+	public int getNumNeighbours(int nodeIndex)
+	{
+		return game.getNumNeighbours(nodeIndex);
+	}
+	
+	public int getNextPacManDir(int to,boolean closer,DM measure)
+	{
+		return game.getNextPacManDir(to,closer,measure);
+	}
+	
+	public int getNextGhostDir(int whichGhost,int to,boolean closer,DM measure)
+	{
+		return game.getNextGhostDir(whichGhost,to,closer,measure);
+	}
+	
+	public int getPathDistance(int from,int to)
+	{
+		return game.getPathDistance(from,to);
+	}
+	
+	public double getEuclideanDistance(int from,int to)
+	{
+		return game.getEuclideanDistance(from,to);
+	}
+	
+	public int getManhattenDistance(int from,int to)
+	{
+		return game.getManhattenDistance(from,to);
+	}
+	
+	public int[] getPossiblePacManDirs(boolean includeReverse)
+	{
+		return game.getPossiblePacManDirs(includeReverse);
+	}
+	
+	public int[] getPossibleGhostDirs(int whichGhost)
+	{
+		return game.getPossibleGhostDirs(whichGhost);
+	}
+	
+	public int getPossiblePacManDirs(boolean includeReverse,int[] directions)
+	{
+		return game.getPossiblePacManDirs(includeReverse,directions);
+	}
+	
+	public int getPossibleGhostDirs(int whichGhost,int[] directions)
+	{
+		return game.getPossibleGhostDirs(whichGhost,directions);
+	}
+	
+	public int[] getPath(int from,int to)
+	{
+		return game.getPath(from,to);
+	}
+	
+	public int[] getGhostPath(int whichGhost,int to)
+	{
+		return game.getGhostPath(whichGhost,to);
+	}
+	
+	public int getTarget(int from,int[] targets,boolean nearest,DM measure)
+	{
+		return game.getTarget(from,targets,nearest,measure);
+	}
+	
+	public int getTarget(int from,int[] targets,int numTargets,boolean nearest,DM measure)
+	{
+		return game.getTarget(from,targets,numTargets,nearest,measure);
+	}
+	
+	public int getNearestActivePill(int from)
+	{
+		return game.getNearestActivePill(from);
+	}
+	
+	public int getNearestActivePowerPill(int from)
+	{
+		return game.getNearestActivePowerPill(from);
+	}
+	
+	public int getGhostTarget(int from,int[] targets,boolean nearest)
+	{
+		return game.getGhostTarget(from,targets,nearest);
+	}
+	
+	public int getGhostPathDistance(int whichGhost,int to)
+	{
+		return game.getGhostPathDistance(whichGhost,to);
+	}
+	
+	public int getGhostPathDistance(int from,int lastDir,int to)
+	{
+		return game.getGhostPathDistance(from,lastDir,to);
+	}
+	
+	public int getNextGhostDir(int from,int lastDir,int to)
+	{
+		return game.getNextGhostDir(from,lastDir,to);
+	}
+}
@@ -13,7 +13,6 @@
  */
 package game.core;
 
-import java.util.BitSet;
 
 public class _G_ extends G
 {
@@ -23,48 +22,43 @@ public class _G_ extends G
 	private int pacManDir=G.INITIAL_PAC_DIR;
 	private StringBuilder sb;
 	
+	//seed of the current game
+	private long seed;
+	
 	public _G_(){}
 	
-	//Instantiates everything to start a new game
+	//Instantiates everything to start a new game with a fresh seed
 	public void newGame()
+	{
+		newGame(GameRandom.newSeed());
+	}
+	
+	//Instantiates everything to start a new game; the same seed (and the same controllers) always produce the same game
+	public void newGame(long seed)
 	{	
-		init();		//load mazes if not yet loaded
-		
-		curMaze=0;
-		
-		curGhostLocs=new int[G.NUM_GHOSTS];
-		lastGhostDirs=new int[G.NUM_GHOSTS];
-		edibleTimes=new int[G.NUM_GHOSTS];
-		lairTimes=new int[G.NUM_GHOSTS];
-
-		pills=new BitSet(getNumberPills());
-		pills.set(0,getNumberPills());
-		powerPills=new BitSet(getNumberPowerPills());
-		powerPills.set(0,getNumberPowerPills());
-		score=0;
-		levelTime=0;
-		totalTime=0;
-		totLevel=0;
-		livesRemaining=G.NUM_LIVES;
-		extraLife=false;
-		gameOver=false;
-		
-		reset(false);
+		this.seed=seed;
+		startGame(seed);
 		
 		//for replays
 		this.sb=new StringBuilder();
 	}
 	
+	//The seed the current game was started with (may be used to replay it with newGame(seed))
+	public long getSeed()
+	{
+		return seed;
+	}
+	
 	//Size of the Maze (for display only)
 	public int getWidth()
 	{
-		return mazes[curMaze].width;
+		return mazes[state[MAZE]].width;
 	}
 	
 	//Size of the Maze (for display only)
 	public int getHeight()
 	{
-		return mazes[curMaze].height;
+		return mazes[state[MAZE]].height;
 	}
 	
 	//for the web-site javascript replays
@@ -73,17 +67,17 @@ public class _G_ extends G
         sb.append("{");
 
         //maze
-        sb.append("ma:"+curMaze+",");
-        sb.append("tt:"+totalTime+",");
-        sb.append("li:"+livesRemaining+",");
-        sb.append("sc:"+score+",");
-        sb.append("lt:"+levelTime+",");
-        sb.append("le:"+totLevel+",");
+        sb.append("ma:"+state[MAZE]+",");
+        sb.append("tt:"+state[TOTAL_TIME]+",");
+        sb.append("li:"+state[LIVES]+",");
+        sb.append("sc:"+state[SCORE]+",");
+        sb.append("lt:"+state[LEVEL_TIME]+",");
+        sb.append("le:"+state[LEVEL]+",");
         
         // pacman
-        sb.append("pn:"+curPacManLoc+",");
+        sb.append("pn:"+state[PAC_LOC]+",");
         
-        int pacDir=lastPacManDir;
+        int pacDir=state[PAC_DIR];
         
     	if(pacDir>=0 && pacDir<4)
     		pacManDir=pacDir;
@@ -92,21 +86,21 @@ public class _G_ extends G
         
         // ghosts
         sb.append("gh:[");
-        sb.append("{gn:"+curGhostLocs[0]+",");
-        sb.append("di:"+lastGhostDirs[0]+",et:"+edibleTimes[0]);
-        sb.append(",lt:"+lairTimes[0]);
+        sb.append("{gn:"+state[GHOST_LOCS]+",");
+        sb.append("di:"+state[GHOST_DIRS]+",et:"+state[GHOST_EDIBLE_TIMES]);
+        sb.append(",lt:"+state[GHOST_LAIR_TIMES]);
         sb.append("},");
-        sb.append("{gn:"+curGhostLocs[1]+",");
-        sb.append("di:"+lastGhostDirs[1]+",et:"+edibleTimes[1]);
-        sb.append(",lt:"+lairTimes[1]);
+        sb.append("{gn:"+state[GHOST_LOCS+1]+",");
+        sb.append("di:"+state[GHOST_DIRS+1]+",et:"+state[GHOST_EDIBLE_TIMES+1]);
+        sb.append(",lt:"+state[GHOST_LAIR_TIMES+1]);
         sb.append("},");
-        sb.append("{gn:"+curGhostLocs[2]+",");
-        sb.append("di:"+lastGhostDirs[2]+",et:"+edibleTimes[2]);
-        sb.append(",lt:"+lairTimes[2]);
+        sb.append("{gn:"+state[GHOST_LOCS+2]+",");
+        sb.append("di:"+state[GHOST_DIRS+2]+",et:"+state[GHOST_EDIBLE_TIMES+2]);
+        sb.append(",lt:"+state[GHOST_LAIR_TIMES+2]);
         sb.append("},");
-        sb.append("{gn:"+curGhostLocs[3]+",");
-        sb.append("di:"+lastGhostDirs[3]+",et:"+edibleTimes[3]);
-        sb.append(",lt:"+lairTimes[3]);
+        sb.append("{gn:"+state[GHOST_LOCS+3]+",");
+        sb.append("di:"+state[GHOST_DIRS+3]+",et:"+state[GHOST_EDIBLE_TIMES+3]);
+        sb.append(",lt:"+state[GHOST_LAIR_TIMES+3]);
         sb.append("}");
         sb.append("],");
 
@@ -1,17 +1,24 @@
 package game.core;
 
 /*
- * This class is to replay games that were recorded using Replay. The only differences are:
- * 1. Ghost reversals are removed
+ * This class is to replay games that were recorded using Replay or BinaryReplay. The only differences are:
+ * 1. Ghost reversals are taken from the directions recorded rather than drawn at random
  * 2. Directions are not checked (since they are necessarily valid)
  * This class should only be used in conjunction with stored directions, not to play the game itself.
  */
 public final class _RG_ extends _G_
 {	
-	//Updates the locations of the ghosts without reversals
+	//Updates the locations of the ghosts: ghosts cannot choose to reverse, so a ghost recorded going back the way it came
+	//was reversed (by a power pill or at random) and moves even if edible, as in G.updateGhosts(-)
 	protected void updateGhosts(int[] directions,boolean reverse)
 	{
-		super.updateGhosts(directions,false);
+		for(int i=0;i<directions.length;i++)
+			if(state[GHOST_LAIR_TIMES+i]==0 && (directions[i]==getReverse(state[GHOST_DIRS+i]) 
+					|| state[GHOST_EDIBLE_TIMES+i]==0 || state[GHOST_EDIBLE_TIMES+i]%GHOST_SPEED_REDUCTION!=0))
+			{
+				set(GHOST_DIRS+i,directions[i]);
+				set(GHOST_LOCS+i,getNeighbour(state[GHOST_LOCS+i],directions[i]));
+			}
 	}
 	
 	public int checkGhostDir(int whichGhost,int direction)
@@ -23,4 +30,4 @@ public final class _RG_ extends _G_
 	{
 		return direction;		
 	}
-}
\ No newline at end of file
+}